@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Нагрузочный клиент для server.MetroHttpServer: держит заданное число одновременных запросов
+// по смеси путей и выводит пропускную способность и перцентили задержки.
+// Запуск: java -cp target/benchmarks.jar benchmarks.HttpLoadClient [http://localhost:8080] [concurrency] [requests]
+public class HttpLoadClient {
+    private static final String[] PATHS = {
+            "/lines",
+            "/lines/01/stations",
+            "/transfers?line=01&station=" + encode("Библиотека имени Ленина"),
+            "/route?from=" + encode("Сокольники") + "&to=" + encode("Ховрино"),
+            "/route?fromLine=14&from=" + encode("Лужники") + "&toLine=10&to=" + encode("Марьина роща"),
+    };
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        List<URI> uris = new ArrayList<>();
+        for (String path : PATHS) {
+            uris.add(URI.create(baseUrl + path));
+        }
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sent = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(uris.get(i % uris.size())).GET().build();
+            futures[i] = client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, error) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (error != null || response.statusCode() != 200) {
+                            failed.incrementAndGet();
+                        } else {
+                            bytes.addAndGet(response.body().length);
+                        }
+                        completed.incrementAndGet();
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(futures).exceptionally(error -> null).join();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("Запросов: %d (ошибок: %d), одновременно: %d%n", completed.get(), failed.get(), concurrency);
+        System.out.printf("Время: %.2f с, пропускная способность: %.0f запросов/с, получено %d байт%n",
+                elapsed / 1e9, requests / (elapsed / 1e9), bytes.get());
+        System.out.printf("Задержка, мс: p50 = %.2f, p90 = %.2f, p99 = %.2f, max = %.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90),
+                percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
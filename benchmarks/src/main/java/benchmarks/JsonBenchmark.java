@@ -0,0 +1,88 @@
+package benchmarks;
+
+import metro.Metro;
+import metro.MetroNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.JsonUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Запись metro.json (дерево json-simple и потоковая), чтение и вывод информации о метро
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonBenchmark {
+    @Param({"1", "10", "100"})
+    private int scale;
+
+    private MetroNetwork network;
+    private Metro loaded;
+    private Path exportFile;
+    private Path jsonFile;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() throws IOException {
+        network = SyntheticNetworks.scale(SyntheticNetworks.fixtureMetro(), scale);
+        exportFile = Files.createTempFile("metro-export", ".json");
+        jsonFile = Files.createTempFile("metro", ".json");
+        JsonUtil.createJsonFileStreaming(network, jsonFile.toString());
+        loaded = JsonUtil.loadJsonFile(jsonFile.toString());
+        // Вывод на консоль не замеряем
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        Files.deleteIfExists(exportFile);
+        Files.deleteIfExists(jsonFile);
+    }
+
+    @Benchmark
+    public void createJsonFile() {
+        JsonUtil.createJsonFile(network, exportFile.toString());
+    }
+
+    @Benchmark
+    public void createJsonFileStreaming() {
+        JsonUtil.createJsonFileStreaming(network, exportFile.toString());
+    }
+
+    @Benchmark
+    public Metro loadJsonFile() {
+        return JsonUtil.loadJsonFile(jsonFile.toString());
+    }
+
+    @Benchmark
+    public void showInfo() {
+        JsonUtil.showInfoAboutLinesAndStations(loaded);
+        JsonUtil.showInfoAboutConnections(loaded);
+    }
+
+    @Benchmark
+    public void loadAndShowInfo() {
+        JsonUtil.showInfoAboutLinesAndStations(jsonFile.toString());
+        JsonUtil.showInfoAboutConnections(jsonFile.toString());
+    }
+}
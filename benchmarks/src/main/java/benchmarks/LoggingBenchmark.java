@@ -0,0 +1,54 @@
+package benchmarks;
+
+import metro.Metro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ParsingUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Разбор страницы с синхронным (log4j2.xml) и асинхронным (log4j2-async.xml) журналированием.
+// Конфигурация задаётся при запуске JVM, поэтому каждый вариант выполняется в своём форке
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LoggingBenchmark {
+    @Param({"1", "10", "100"})
+    private int scale;
+
+    private byte[] html;
+
+    @Setup
+    public void setUp() {
+        html = scale == 1 ?
+                SyntheticNetworks.fixtureBytes() :
+                SyntheticNetworks.toWikiHtml(SyntheticNetworks.scale(SyntheticNetworks.fixtureMetro(), scale))
+                        .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2.xml")
+    public Metro parseSyncLogging() throws IOException {
+        return ParsingUtil.parseHtml(new ByteArrayInputStream(html));
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-async.xml")
+    public Metro parseAsyncLogging() throws IOException {
+        return ParsingUtil.parseHtml(new ByteArrayInputStream(html));
+    }
+}
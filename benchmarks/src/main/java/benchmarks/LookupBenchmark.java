@@ -0,0 +1,81 @@
+package benchmarks;
+
+import metro.Line;
+import metro.Metro;
+import metro.Station;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Поиск линий и станций по имени в Metro и сравнение линий (Line.compareTo)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LookupBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"1", "10", "100"})
+    private int scale;
+
+    private Metro metro;
+    private String[] lineNames;
+    private Line[] lines;
+    private String[] stationNames;
+    private Line[] stationLines;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        metro = SyntheticNetworks.toMetro(SyntheticNetworks.scale(SyntheticNetworks.fixtureMetro(), scale));
+        List<Station> stations = new ArrayList<>(metro.getStations());
+        List<Line> allLines = new ArrayList<>(metro.getLines());
+        Collections.shuffle(stations, new Random(42));
+        Collections.shuffle(allLines, new Random(42));
+        lineNames = new String[QUERIES];
+        lines = new Line[QUERIES];
+        stationNames = new String[QUERIES];
+        stationLines = new Line[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            Line line = allLines.get(i % allLines.size());
+            lines[i] = line;
+            lineNames[i] = line.getName().toUpperCase();
+            Station station = stations.get(i % stations.size());
+            stationNames[i] = station.getName();
+            stationLines[i] = station.getLine();
+        }
+    }
+
+    @Benchmark
+    public Line getLineByName() {
+        return metro.getLineByName(lineNames[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public Station getStationByNameAndLine() {
+        int i = next++ & (QUERIES - 1);
+        return metro.getStationByNameAndLine(stationNames[i], stationLines[i]);
+    }
+
+    @Benchmark
+    public int lineCompareTo() {
+        int i = next++ & (QUERIES - 1);
+        return lines[i].compareTo(lines[(i + 1) & (QUERIES - 1)]);
+    }
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import metro.Metro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ParsingUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Разбор HTML-страницы: фикстура (scale = 1) и синтетические страницы в 10 и 100 раз больше
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParsingBenchmark {
+    @Param({"1", "10", "100"})
+    private int scale;
+
+    private byte[] html;
+
+    @Setup
+    public void setUp() {
+        html = scale == 1 ?
+                SyntheticNetworks.fixtureBytes() :
+                SyntheticNetworks.toWikiHtml(SyntheticNetworks.scale(SyntheticNetworks.fixtureMetro(), scale))
+                        .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Metro parseHtml() throws IOException {
+        return ParsingUtil.parseHtml(new ByteArrayInputStream(html));
+    }
+}
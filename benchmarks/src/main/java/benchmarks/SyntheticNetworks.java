@@ -0,0 +1,171 @@
+package benchmarks;
+
+import metro.Line;
+import metro.Metro;
+import metro.MetroNetwork;
+import metro.MetroView;
+import metro.Station;
+import utils.ParsingUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Данные для бенчмарков: HTML-фикстура в формате таблиц Википедии и увеличенные синтетические сети
+public final class SyntheticNetworks {
+    // Страница сгенерирована из result/metro.json в разметке таблиц статьи Википедии
+    public static final String FIXTURE = "/wiki-fixture.html";
+
+    private SyntheticNetworks() {
+    }
+
+    public static byte[] fixtureBytes() {
+        try (InputStream in = SyntheticNetworks.class.getResourceAsStream(FIXTURE)) {
+            return in.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static Metro fixtureMetro() {
+        try {
+            return ParsingUtil.parseHtml(new ByteArrayInputStream(fixtureBytes()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // factor копий сети: у копии k номера линий сдвинуты на k * 100, к именам добавлен номер копии.
+    // Соседние копии связаны пересадкой между первыми станциями первой линии
+    public static MetroNetwork scale(MetroView base, int factor) {
+        MetroNetwork.Builder builder = MetroNetwork.builder();
+        List<Line> lines = new ArrayList<>(base.getLines());
+        for (int copy = 0; copy < factor; copy++) {
+            for (Line line : lines) {
+                String number = lineNumber(line, copy);
+                builder.addLine(number, name(line.getName(), copy));
+                for (Station station : line.getStations()) {
+                    builder.addStation(number, name(station.getName(), copy));
+                }
+            }
+            for (Map.Entry<Station, ? extends NavigableSet<Station>> connection : base.getConnections().entrySet()) {
+                Station from = connection.getKey();
+                for (Station to : connection.getValue()) {
+                    builder.addConnection(lineNumber(from.getLine(), copy), name(from.getName(), copy),
+                            lineNumber(to.getLine(), copy), name(to.getName(), copy));
+                }
+            }
+            if (copy > 0 && !lines.isEmpty() && !lines.get(0).getStations().isEmpty()) {
+                Line first = lines.get(0);
+                String station = first.getStations().get(0).getName();
+                String previous = lineNumber(first, copy - 1);
+                String current = lineNumber(first, copy);
+                builder.addConnection(previous, name(station, copy - 1), current, name(station, copy));
+                builder.addConnection(current, name(station, copy), previous, name(station, copy - 1));
+            }
+        }
+        return builder.build();
+    }
+
+    // Изменяемая копия сети - для замеров методов Metro
+    public static Metro toMetro(MetroView network) {
+        Metro metro = new Metro();
+        for (Line source : network.getLines()) {
+            Line line = new Line(source.getNumber(), source.getName());
+            metro.addLine(line);
+            for (Station station : source.getStations()) {
+                Station copy = new Station(station.getName(), line);
+                line.addStation(copy);
+                metro.addStation(copy);
+            }
+        }
+        for (Map.Entry<Station, ? extends NavigableSet<Station>> connection : network.getConnections().entrySet()) {
+            TreeSet<Station> connected = new TreeSet<>();
+            for (Station to : connection.getValue()) {
+                connected.add(find(metro, to));
+            }
+            metro.addConnections(find(metro, connection.getKey()), connected);
+        }
+        return metro;
+    }
+
+    // Разметка, которую разбирает ParsingUtil: div.mw-parser-output > table.standard, строка на станцию
+    public static String toWikiHtml(MetroView metro) {
+        StringBuilder html = new StringBuilder(1 << 16);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"></head><body><div class=\"mw-parser-output\">\n")
+                .append("<table class=\"standard sortable\"><tbody>\n")
+                .append("<tr><th>Линия</th><th>Станция</th><th>Открыта</th><th>Пересадки</th></tr>\n");
+        for (Line line : metro.getLines()) {
+            for (Station station : line.getStations()) {
+                html.append("<tr><td data-sort-value=\"").append(line.getNumber()).append("\"><span>")
+                        .append(line.getNumber()).append("</span> <a href=\"/wiki/x\" title=\"")
+                        .append(line.getName()).append("\">").append(line.getName()).append("</a></td>")
+                        .append("<td><a href=\"/wiki/x\" title=\"").append(station.getName()).append("\">")
+                        .append(station.getName()).append("</a></td><td>1935</td>");
+                NavigableSet<Station> connected = metro.getConnections().get(station);
+                if (connected == null || connected.isEmpty()) {
+                    html.append("<td data-sort-value=\"Infinity\"></td>");
+                } else {
+                    html.append("<td data-sort-value=\"").append(connected.size()).append("\">");
+                    for (Station to : connected) {
+                        html.append("<a href=\"/wiki/x\" title=\"Переход на станцию ").append(to.getName())
+                                .append(' ').append(genitive(to.getLine().getName())).append("\">")
+                                .append(to.getLine().getNumber()).append("</a>");
+                    }
+                    html.append("</td>");
+                }
+                html.append("</tr>\n");
+            }
+        }
+        html.append("</tbody></table></div></body></html>\n");
+        return html.toString();
+    }
+
+    //==================================================================================================================
+
+    private static Station find(Metro metro, Station station) {
+        return metro.getLineByNumber(station.getLine().getNumber()).getStationByName(station.getName());
+    }
+
+    private static String lineNumber(Line line, int copy) {
+        if (copy == 0) return line.getNumber();
+        String number = line.getNumber();
+        int digits = 0;
+        while (digits < number.length() && Character.isDigit(number.charAt(digits))) {
+            digits++;
+        }
+        return (copy * 100 + Integer.parseInt(number.substring(0, digits))) + number.substring(digits);
+    }
+
+    private static String name(String name, int copy) {
+        return copy == 0 ? name : name + " " + (copy + 1);
+    }
+
+    // Родительный падеж имени линии, как в подписях пересадок Википедии ("Кольцевой линии")
+    private static String genitive(String lineName) {
+        if (lineName.startsWith("Московский монорельс")) {
+            return lineName.replace("Московский монорельс", "Московского монорельса");
+        }
+        if (lineName.startsWith("Московское центральное кольцо")) {
+            return lineName.replace("Московское центральное кольцо", "Московского центрального кольца");
+        }
+        StringBuilder result = new StringBuilder();
+        for (String word : lineName.split(" ")) {
+            if (result.length() > 0) result.append(' ');
+            if (word.equals("линия")) {
+                result.append("линии");
+            } else if (word.endsWith("ая")) {
+                result.append(word, 0, word.length() - 2).append("ой");
+            } else {
+                result.append(word);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,51 @@
+import metro.MetroNetwork;
+import metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import routing.BatchEvaluator;
+import routing.RouteGraph;
+import routing.TravelTimes;
+import utils.JsonUtil;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+// Пакетная оценка маршрутов: BatchMain <пары.csv> <результат.csv> [travel-times.csv [ЧЧ:ММ]]
+// Граф строится из result/metro.json; без файла времён берутся времена по умолчанию, отправление - 08:00
+public class BatchMain {
+    private final static Logger rootLogger = LogManager.getRootLogger();
+    private final static Logger errorLogger = LogManager.getLogger("errorLogger");
+    private final static String JSON_FILE = "result/metro.json";
+    private final static String METRICS_FILE = "result/metrics.prom";
+    private final static LocalTime DEFAULT_DEPARTURE = LocalTime.of(8, 0);
+    private final static String USAGE = "Использование: BatchMain <пары.csv> <результат.csv> [travel-times.csv [ЧЧ:ММ]]";
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            rootLogger.error(USAGE);
+            return;
+        }
+        LocalTime departure;
+        try {
+            departure = args.length > 3 ? LocalTime.parse(args[3]) : DEFAULT_DEPARTURE;
+        } catch (DateTimeParseException ex) {
+            rootLogger.error("Неверное время отправления {}, нужно ЧЧ:ММ. {}", args[3], USAGE);
+            return;
+        }
+        try {
+            MetroNetwork network = MetroNetwork.copyOf(JsonUtil.loadJsonFile(JSON_FILE));
+            TravelTimes times = args.length > 2 ? TravelTimes.load(Paths.get(args[2])) : TravelTimes.defaults();
+            RouteGraph graph = RouteGraph.compile(network);
+            BatchEvaluator evaluator = new BatchEvaluator(graph, times.compile(graph),
+                    departure.toSecondOfDay(), BatchEvaluator.DEFAULT_CHUNK_SIZE);
+            evaluator.evaluate(Paths.get(args[0]), Paths.get(args[1]), Runtime.getRuntime().availableProcessors());
+            Metrics.writePrometheusFile(METRICS_FILE);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        rootLogger.info("Завершение программы");
+    }
+}
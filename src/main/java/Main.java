@@ -1,19 +1,45 @@
 import lombok.Getter;
+import metro.Metro;
+import metrics.Metrics;
+import metro.MetroNetwork;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import utils.JsonUtil;
+import utils.LineColumnsUtil;
 import utils.ParsingUtil;
+import utils.SnapshotUtil;
+import utils.UpdateUtil;
 
 @Getter
 public class Main {
     private final static Logger rootLogger = LogManager.getRootLogger();
     private final static String JSON_FILE = "result/metro.json";
+    private final static String SNAPSHOT_FILE = "result/metro.snapshot";
+    private final static String LINES_FILE = "result/metro.lines";
+    private final static String METRICS_FILE = "result/metrics.prom";
 
     public static void main(String[] args) {
-        ParsingUtil.parseWikiPage();
-        JsonUtil.createJsonFile(JSON_FILE);
-        JsonUtil.showInfoAboutLinesAndStations(JSON_FILE);
-        JsonUtil.showInfoAboutConnections(JSON_FILE);
+        Metrics.registerMBean();
+        // --incremental: файлы результата обновляются, только если таблицы станций на странице изменились
+        if (args.length > 0 && "--incremental".equals(args[0])) {
+            UpdateUtil.updateFromWiki(JSON_FILE, SNAPSHOT_FILE);
+            Metrics.writePrometheusFile(METRICS_FILE);
+            rootLogger.info("Завершение программы");
+            return;
+        }
+        Metro parsedMetro = ParsingUtil.parseWikiPage();
+        if (parsedMetro.getLines().isEmpty()) {
+            rootLogger.error("Метро не построено, файлы результата не перезаписываются");
+            return;
+        }
+        MetroNetwork network = MetroNetwork.copyOf(parsedMetro);
+        JsonUtil.createJsonFileStreaming(network, JSON_FILE);
+        SnapshotUtil.createSnapshotFile(network, SNAPSHOT_FILE);
+        LineColumnsUtil.createLineColumnsFile(network, LINES_FILE);
+        Metro loadedMetro = JsonUtil.loadJsonFile(JSON_FILE);
+        JsonUtil.showInfoAboutLinesAndStations(loadedMetro);
+        JsonUtil.showInfoAboutConnections(loadedMetro);
+        Metrics.writePrometheusFile(METRICS_FILE);
         rootLogger.info("Завершение программы");
     }
 }
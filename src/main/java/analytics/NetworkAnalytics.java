@@ -0,0 +1,429 @@
+package analytics;
+
+import metro.MetroNetwork;
+import metro.MetroView;
+import metro.Station;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import routing.EdgeCosts;
+import routing.RouteFinder;
+import routing.RouteGraph;
+import routing.TravelTimes;
+import utils.JsonUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Аналитика сети по RouteGraph: посредничество (betweenness, алгоритм Брандеса с весами рёбер),
+// близость (closeness), точки сочленения и "что будет, если закрыть пересадку".
+// Стоимости рёбер берутся из EdgeCosts один раз на заданный момент суток и хранятся в int[].
+// Брандес и перебор пересадок распараллелены по станциям-источникам и по пересадкам соответственно;
+// закрытие пересадки - исключение её рёбер в RouteFinder (blockEdge), граф не пересобирается
+public final class NetworkAnalytics {
+    private static final Logger rootLogger = LogManager.getRootLogger();
+    private static final Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    private static final String JSON_FILE = "result/metro.json";
+    private static final String REPORT_FILE = "result/analytics.txt";
+    private static final LocalTime DEFAULT_TIME = LocalTime.of(12, 0);
+    private static final int SOURCES_PER_BLOCK = 16;
+    private static final int REPORT_TOP = 20;
+
+    private final RouteGraph graph;
+    private final int time;
+    private final int[] weights;                // ребро -> стоимость в момент time
+    private final EdgeCosts frozenCosts;        // те же стоимости для RouteFinder
+
+    private double[] betweenness;
+    private double[] closeness;
+    private boolean[] articulationPoints;
+    private long baselinePairs;                 // связанные упорядоченные пары станций
+    private long baselineCost;                  // сумма стоимостей кратчайших путей по этим парам
+    private int[][] distances;                  // источник -> стоимости до станций (MAX_VALUE - недостижима)
+
+    public NetworkAnalytics(RouteGraph graph, EdgeCosts costs, int time) {
+        this.graph = graph;
+        this.time = time;
+        this.weights = new int[graph.edgeCount()];
+        for (int v = 0; v < graph.size(); v++) {
+            for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                weights[e] = costs.cost(v, e, time);
+            }
+        }
+        this.frozenCosts = (from, edge, at) -> weights[edge];
+    }
+
+    public static NetworkAnalytics create(MetroView metro, TravelTimes times, LocalTime time) {
+        RouteGraph graph = RouteGraph.compile(metro);
+        return new NetworkAnalytics(graph, times.compile(graph), time.toSecondOfDay());
+    }
+
+    // Отчёт по result/metro.json: NetworkAnalytics [metro.json [travel-times.csv [отчёт]]]
+    public static void main(String[] args) {
+        String jsonFile = args.length > 0 ? args[0] : JSON_FILE;
+        String reportFile = args.length > 2 ? args[2] : REPORT_FILE;
+        try {
+            MetroNetwork network = MetroNetwork.copyOf(JsonUtil.loadJsonFile(jsonFile));
+            TravelTimes times = args.length > 1 ? TravelTimes.load(Paths.get(args[1])) : TravelTimes.defaults();
+            create(network, times, DEFAULT_TIME).writeReport(Paths.get(reportFile));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+    }
+
+    public RouteGraph getGraph() {
+        return graph;
+    }
+
+    // Посредничество: сколько кратчайших путей между другими парами станций проходит через станцию
+    // (при нескольких равных путях - доля). Пути s -> t и t -> s могут различаться: стоимость пересадки
+    // включает ожидание поезда линии, на которую переходим. Для пары {s, t} берётся среднее двух направлений
+    public double[] betweenness() {
+        if (betweenness == null) computeShortestPathScores();
+        return betweenness;
+    }
+
+    // Близость: (достижимых станций - 1) / сумма стоимостей до них, с поправкой на долю достижимых
+    public double[] closeness() {
+        if (closeness == null) computeShortestPathScores();
+        return closeness;
+    }
+
+    // Станции, удаление которых разбивает сеть на несвязанные части
+    public boolean[] articulationPoints() {
+        if (articulationPoints == null) articulationPoints = findArticulationPoints();
+        return articulationPoints;
+    }
+
+    // Закрытие одной пересадки (рёбра в обе стороны) без пересборки графа
+    public TransferImpact closeTransfer(Station from, Station to) {
+        int a = graph.idOf(from);
+        int b = graph.idOf(to);
+        int edge = a < 0 || b < 0 ? -1 : graph.edgeBetween(a, b);
+        if (edge < 0 || !graph.isTransfer(edge)) {
+            throw new IllegalArgumentException("Нет пересадки между " + from + " и " + to);
+        }
+        if (betweenness == null) computeShortestPathScores();
+        return closeTransfer(new RouteFinder(graph, frozenCosts), a, b);
+    }
+
+    // Все пересадки сети по убыванию ущерба от закрытия: сначала по разорванным парам, затем по росту стоимости
+    public List<TransferImpact> sweepTransfers() {
+        if (betweenness == null) computeShortestPathScores();     // базовая средняя стоимость
+        List<int[]> transfers = new ArrayList<>();
+        for (int v = 0; v < graph.size(); v++) {
+            for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                int u = graph.edgeTarget(e);
+                if (graph.isTransfer(e) && v < u) transfers.add(new int[]{v, u});
+            }
+        }
+        ThreadLocal<RouteFinder> finders = ThreadLocal.withInitial(() -> new RouteFinder(graph, frozenCosts));
+        return transfers.parallelStream()
+                .map(pair -> closeTransfer(finders.get(), pair[0], pair[1]))
+                .sorted(Comparator.comparingLong(TransferImpact::getDisconnectedPairs)
+                        .thenComparingDouble(TransferImpact::getAverageCostIncrease).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void writeReport(Path file) throws IOException {
+        long start = System.nanoTime();
+        double[] betweenness = betweenness();
+        double[] closeness = closeness();
+        boolean[] articulation = articulationPoints();
+        long scores = System.nanoTime();
+        List<TransferImpact> impacts = sweepTransfers();
+        long sweep = System.nanoTime();
+
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(String.format("Станций: %d, рёбер: %d, момент: %s, средняя стоимость поездки: %.1f\n\n",
+                    graph.size(), graph.edgeCount() / 2, LocalTime.ofSecondOfDay(time % 86400),
+                    averageCost(baselineCost, baselinePairs)));
+
+            writer.write("Посредничество (betweenness)\n");
+            for (int id : top(betweenness, REPORT_TOP)) {
+                writer.write(String.format("  %-40s %-4s %12.1f\n", graph.stationOf(id).getName(),
+                        graph.stationOf(id).getLine().getNumber(), betweenness[id]));
+            }
+            writer.write("\nБлизость (closeness)\n");
+            for (int id : top(closeness, REPORT_TOP)) {
+                writer.write(String.format("  %-40s %-4s %12.6f\n", graph.stationOf(id).getName(),
+                        graph.stationOf(id).getLine().getNumber(), closeness[id]));
+            }
+            writer.write("\nТочки сочленения\n");
+            for (int id = 0; id < articulation.length; id++) {
+                if (!articulation[id]) continue;
+                writer.write(String.format("  %-40s %s\n", graph.stationOf(id).getName(),
+                        graph.stationOf(id).getLine().getNumber()));
+            }
+            writer.write("\nЗакрытие пересадок (разорвано пар, средняя стоимость, прирост)\n");
+            for (TransferImpact impact : impacts) {
+                writer.write(String.format("  %-70s %8d %10.1f %+8.2f\n", impact,
+                        impact.getDisconnectedPairs(), impact.getAverageCost(), impact.getAverageCostIncrease()));
+            }
+        }
+        rootLogger.info("Отчёт аналитики записан в {}: показатели станций за {} мс, {} пересадок за {} мс",
+                file, (scores - start) / 1_000_000, impacts.size(), (sweep - scores) / 1_000_000);
+    }
+
+    //==================================================================================================================
+
+    // Брандес по блокам источников: каждый блок копит свои частичные суммы, затем они складываются
+    private void computeShortestPathScores() {
+        int n = graph.size();
+        int blocks = (n + SOURCES_PER_BLOCK - 1) / SOURCES_PER_BLOCK;
+        distances = new int[n][];
+        Scores total = IntStream.range(0, blocks).parallel()
+                .mapToObj(block -> {
+                    Brandes brandes = new Brandes();
+                    for (int s = block * SOURCES_PER_BLOCK, end = Math.min(n, s + SOURCES_PER_BLOCK); s < end; s++) {
+                        brandes.run(s);
+                    }
+                    return brandes.scores;
+                })
+                .reduce(Scores::add)
+                .orElseGet(() -> new Scores(n));
+
+        double[] betweenness = new double[n];
+        double[] closeness = new double[n];
+        for (int v = 0; v < n; v++) {
+            betweenness[v] = total.dependency[v] / 2;       // среднее по направлениям s -> t и t -> s
+            int reachable = total.reached[v];
+            if (reachable > 0 && total.distanceSum[v] > 0 && n > 1) {
+                closeness[v] = (double) reachable / total.distanceSum[v] * reachable / (n - 1);
+            }
+        }
+        this.betweenness = betweenness;
+        this.closeness = closeness;
+        this.baselinePairs = total.pairs;
+        this.baselineCost = total.cost;
+    }
+
+    private TransferImpact closeTransfer(RouteFinder finder, int a, int b) {
+        finder.clearBlocks();
+        int ab = graph.edgeBetween(a, b);
+        int ba = graph.edgeBetween(b, a);
+        finder.blockEdge(ab);
+        finder.blockEdge(ba);
+        long pairs = 0;
+        long cost = 0;
+        int n = graph.size();
+        for (int s = 0; s < n; s++) {
+            int[] row = distances[s];
+            // Если пересадка не лежит ни на одном кратчайшем пути от s, стоимости от s не меняются
+            if (!onShortestPath(row, a, b, ab) && !onShortestPath(row, b, a, ba)) {
+                for (int t = 0; t < n; t++) {
+                    if (t == s || row[t] == Integer.MAX_VALUE) continue;
+                    pairs++;
+                    cost += row[t];
+                }
+                continue;
+            }
+            finder.searchAll(s);
+            for (int t = 0; t < n; t++) {
+                int distance = finder.distance(t);
+                if (t == s || distance == RouteFinder.UNREACHABLE) continue;
+                pairs++;
+                cost += distance;
+            }
+        }
+        finder.clearBlocks();
+        double average = averageCost(cost, pairs);
+        return new TransferImpact(graph.stationOf(a), graph.stationOf(b), average,
+                average - averageCost(baselineCost, baselinePairs), baselinePairs - pairs);
+    }
+
+    private boolean onShortestPath(int[] row, int from, int to, int edge) {
+        return row[from] != Integer.MAX_VALUE && row[from] + weights[edge] == row[to];
+    }
+
+    private static double averageCost(long cost, long pairs) {
+        return pairs == 0 ? 0 : (double) cost / pairs;
+    }
+
+    private static int[] top(double[] scores, int limit) {
+        return IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer id) -> scores[id]).reversed())
+                .limit(limit)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Итеративный Тарьян: низшая достижимая глубина low[v] по дереву обхода в глубину
+    private boolean[] findArticulationPoints() {
+        int n = graph.size();
+        boolean[] result = new boolean[n];
+        int[] depth = new int[n];
+        int[] low = new int[n];
+        int[] parent = new int[n];
+        int[] nextEdge = new int[n];
+        int[] stack = new int[n];
+        Arrays.fill(depth, -1);
+        for (int root = 0; root < n; root++) {
+            if (depth[root] >= 0) continue;
+            int rootChildren = 0;
+            int top = 0;
+            stack[top++] = root;
+            depth[root] = 0;
+            low[root] = 0;
+            parent[root] = -1;
+            nextEdge[root] = graph.edgeStart(root);
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (nextEdge[v] < graph.edgeEnd(v)) {
+                    int u = graph.edgeTarget(nextEdge[v]++);
+                    if (depth[u] < 0) {
+                        depth[u] = depth[v] + 1;
+                        low[u] = depth[u];
+                        parent[u] = v;
+                        nextEdge[u] = graph.edgeStart(u);
+                        stack[top++] = u;
+                        if (v == root) rootChildren++;
+                    } else if (u != parent[v]) {
+                        low[v] = Math.min(low[v], depth[u]);
+                    }
+                    continue;
+                }
+                top--;
+                int p = parent[v];
+                if (p >= 0) {
+                    low[p] = Math.min(low[p], low[v]);
+                    if (p != root && low[v] >= depth[p]) result[p] = true;
+                }
+            }
+            if (rootChildren > 1) result[root] = true;
+        }
+        return result;
+    }
+
+    // Частичные суммы по блоку источников
+    private static final class Scores {
+        private final double[] dependency;
+        private final long[] distanceSum;
+        private final int[] reached;
+        private long pairs;
+        private long cost;
+
+        Scores(int n) {
+            dependency = new double[n];
+            distanceSum = new long[n];
+            reached = new int[n];
+        }
+
+        Scores add(Scores other) {
+            for (int v = 0; v < dependency.length; v++) {
+                dependency[v] += other.dependency[v];
+                distanceSum[v] += other.distanceSum[v];
+                reached[v] += other.reached[v];
+            }
+            pairs += other.pairs;
+            cost += other.cost;
+            return this;
+        }
+    }
+
+    // Один проход Брандеса от источника: Дейкстра с подсчётом числа кратчайших путей sigma,
+    // затем обратный проход по станциям в порядке убывания стоимости с накоплением зависимостей delta
+    private final class Brandes {
+        private final Scores scores = new Scores(graph.size());
+        private final int[] dist = new int[graph.size()];
+        private final double[] sigma = new double[graph.size()];
+        private final double[] delta = new double[graph.size()];
+        private final int[] order = new int[graph.size()];
+        private final boolean[] settled = new boolean[graph.size()];
+        private long[] heap = new long[graph.edgeCount() + 1];     // (стоимость << 32) | станция, ленивое удаление
+
+        void run(int source) {
+            int n = graph.size();
+            Arrays.fill(dist, Integer.MAX_VALUE);
+            Arrays.fill(sigma, 0);
+            Arrays.fill(delta, 0);
+            Arrays.fill(settled, false);
+            dist[source] = 0;
+            sigma[source] = 1;
+            int heapSize = push(0, ((long) 0 << 32) | source);
+            int count = 0;
+            while (heapSize > 0) {
+                long top = heap[0];
+                heapSize = pop(heapSize);
+                int v = (int) top;
+                if (settled[v]) continue;
+                settled[v] = true;
+                order[count++] = v;
+                int base = dist[v];
+                for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                    int u = graph.edgeTarget(e);
+                    if (settled[u]) continue;
+                    int cost = base + weights[e];
+                    if (cost < dist[u]) {
+                        dist[u] = cost;
+                        sigma[u] = sigma[v];
+                        heapSize = push(heapSize, ((long) cost << 32) | u);
+                    } else if (cost == dist[u]) {
+                        sigma[u] += sigma[v];
+                    }
+                }
+            }
+            // Обратный проход: предшественники u - соседи v с dist[v] + w = dist[u]
+            for (int i = count - 1; i > 0; i--) {
+                int u = order[i];
+                double share = (1 + delta[u]) / sigma[u];
+                for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                    int v = graph.edgeTarget(e);
+                    // Ребро u -> v есть всегда и в обратную сторону, но стоимости сторон разные (ожидание поезда
+                    // на пересадке) - нужна стоимость именно v -> u, поэтому берём обратное ребро
+                    int back = graph.edgeBetween(v, u);
+                    if (settled[v] && dist[v] + weights[back] == dist[u]) {
+                        delta[v] += sigma[v] * share;
+                    }
+                }
+                scores.dependency[u] += delta[u];
+                scores.distanceSum[u] += dist[u];
+                scores.reached[u]++;
+                scores.cost += dist[u];
+            }
+            scores.pairs += count - 1;
+            distances[source] = dist.clone();
+        }
+
+        private int push(int size, long value) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int i = size;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+            return size + 1;
+        }
+
+        private int pop(int size) {
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                if (last <= heap[child]) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            if (size > 0) heap[i] = last;
+            return size;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import metro.Station;
+
+// Последствия закрытия одной пересадки: рост средней стоимости поездки между связанными парами станций
+// и число пар, между которыми пути больше нет
+@Getter
+@AllArgsConstructor
+public class TransferImpact {
+    private final Station from;
+    private final Station to;
+    private final double averageCost;
+    private final double averageCostIncrease;
+    private final long disconnectedPairs;
+
+    @Override
+    public String toString() {
+        return from.getName() + " (" + from.getLine().getNumber() + ") <-> "
+                + to.getName() + " (" + to.getLine().getNumber() + ")";
+    }
+}
@@ -0,0 +1,34 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Монотонный счётчик. LongAdder не создаёт конкуренции за одну ячейку при записи из многих потоков
+public final class Counter extends Metric {
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name, String labels, String help) {
+        super(name, labels, help);
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    String type() {
+        return "counter";
+    }
+
+    @Override
+    void writePrometheus(StringBuilder out) {
+        out.append(getName()).append(getLabels()).append(' ').append(get()).append('\n');
+    }
+}
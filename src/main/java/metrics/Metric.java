@@ -0,0 +1,23 @@
+package metrics;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Общая часть метрик: имя, метки в синтаксисе Prometheus ("{method=\"x\"}" или "") и описание
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public abstract class Metric {
+    private final String name;
+    private final String labels;
+    private final String help;
+
+    abstract String type();
+
+    abstract void writePrometheus(StringBuilder out);
+
+    String withLabel(String label, String value) {
+        String pair = label + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + pair + "}" : labels.substring(0, labels.length() - 1) + "," + pair + "}";
+    }
+}
@@ -0,0 +1,135 @@
+package metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Реестр метрик процесса. Метрики создаются один раз (обычно в static final полях) и дальше
+// обновляются без обращения к реестру. Выгрузка - текст Prometheus или MBean "metro:type=Metrics"
+public final class Metrics {
+    private final static Logger rootLogger = LogManager.getRootLogger();
+    private final static Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    private static final String MBEAN_NAME = "metro:type=Metrics";
+    private static final ConcurrentMap<String, Metric> registry = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name, String help) {
+        return counter(name, "", help);
+    }
+
+    // labels - метки в синтаксисе Prometheus, например "{method=\"getLineByName\"}"
+    public static Counter counter(String name, String labels, String help) {
+        return register(new Counter(name, labels, help), Counter.class);
+    }
+
+    public static Timer timer(String name, String help) {
+        return timer(name, "", help);
+    }
+
+    public static Timer timer(String name, String labels, String help) {
+        return register(new Timer(name, labels, help), Timer.class);
+    }
+
+    public static String label(String label, String value) {
+        return "{" + label + "=\"" + value + "\"}";
+    }
+
+    // Текстовый формат Prometheus: метрики одного имени идут подряд под общими HELP и TYPE
+    public static String toPrometheusText() {
+        Map<String, Metric> sorted = new TreeMap<>(registry);
+        StringBuilder out = new StringBuilder(sorted.size() * 128);
+        String family = null;
+        for (Metric metric : sorted.values()) {
+            if (!metric.getName().equals(family)) {
+                family = metric.getName();
+                out.append("# HELP ").append(family).append(' ').append(metric.getHelp()).append('\n');
+                out.append("# TYPE ").append(family).append(' ').append(metric.type()).append('\n');
+            }
+            metric.writePrometheus(out);
+        }
+        return out.toString();
+    }
+
+    public static void writePrometheusFile(String fileName) {
+        try {
+            Files.write(Paths.get(fileName), toPrometheusText().getBytes(StandardCharsets.UTF_8));
+            rootLogger.info("Метрики сохранены в {}", fileName);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+    }
+
+    // Регистрирует MBean один раз на процесс, повторные вызовы ничего не делают
+    public static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), name);
+            }
+        } catch (JMException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+    }
+
+    //==================================================================================================================
+
+    // Повторная регистрация того же имени и меток возвращает уже существующую метрику
+    private static <T extends Metric> T register(T metric, Class<T> type) {
+        Metric existing = registry.putIfAbsent(metric.getName() + metric.getLabels(), metric);
+        if (existing == null) return metric;
+        if (!type.isInstance(existing)) {
+            throw new IllegalArgumentException("Метрика " + metric.getName() + " уже зарегистрирована с другим типом");
+        }
+        return type.cast(existing);
+    }
+
+    private static class MetricsBean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> values = new TreeMap<>();
+            registry.forEach((key, metric) -> {
+                if (metric instanceof Counter) values.put(key, ((Counter) metric).get());
+            });
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getTimerCounts() {
+            Map<String, Long> values = new TreeMap<>();
+            registry.forEach((key, metric) -> {
+                if (metric instanceof Timer) values.put(key, ((Timer) metric).getCount());
+            });
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getTimerTotalNanos() {
+            Map<String, Long> values = new TreeMap<>();
+            registry.forEach((key, metric) -> {
+                if (metric instanceof Timer) values.put(key, ((Timer) metric).getSumNanos());
+            });
+            return values;
+        }
+
+        @Override
+        public String getPrometheusText() {
+            return toPrometheusText();
+        }
+    }
+}
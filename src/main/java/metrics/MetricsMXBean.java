@@ -0,0 +1,14 @@
+package metrics;
+
+import java.util.Map;
+
+// Метрики через JMX (jconsole, VisualVM): значения счётчиков и таймеров и полный текст в формате Prometheus
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getTimerCounts();
+
+    Map<String, Long> getTimerTotalNanos();
+
+    String getPrometheusText();
+}
@@ -0,0 +1,82 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Гистограмма длительностей с фиксированными границами 1 мкс - 10 с (шаг 1-2.5-5).
+// Запись - поиск корзины и два LongAdder, без блокировок и выделения памяти
+public final class Timer extends Metric {
+    private static final long[] BOUNDS = bounds();
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    Timer(String name, String labels, String help) {
+        super(name, labels, help);
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    // Начало замера: long start = timer.start(); ... timer.stop(start);
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && nanos > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    @Override
+    String type() {
+        return "histogram";
+    }
+
+    // Корзины в секундах и накопительно, как принято в формате Prometheus
+    @Override
+    void writePrometheus(StringBuilder out) {
+        long cumulative = 0;
+        for (int i = 0; i <= BOUNDS.length; i++) {
+            cumulative += buckets[i].sum();
+            String le = i < BOUNDS.length ? Double.toString(BOUNDS[i] / 1e9) : "+Inf";
+            out.append(getName()).append("_bucket").append(withLabel("le", le))
+                    .append(' ').append(cumulative).append('\n');
+        }
+        out.append(getName()).append("_sum").append(getLabels()).append(' ')
+                .append(getSumNanos() / 1e9).append('\n');
+        out.append(getName()).append("_count").append(getLabels()).append(' ')
+                .append(getCount()).append('\n');
+    }
+
+    //==================================================================================================================
+
+    private static long[] bounds() {
+        long[] bounds = new long[22];
+        long decade = 1_000;
+        for (int i = 0; i < bounds.length; i += 3) {
+            bounds[i] = decade;
+            if (i + 1 < bounds.length) bounds[i + 1] = decade * 5 / 2;
+            if (i + 2 < bounds.length) bounds[i + 2] = decade * 5;
+            decade *= 10;
+        }
+        return bounds;
+    }
+}
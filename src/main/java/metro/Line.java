@@ -1,36 +1,81 @@
 package metro;
 
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Getter
-@EqualsAndHashCode(exclude = "stations")
+@EqualsAndHashCode(exclude = {"stations", "stationIndex", "sortKey"})
 public class Line implements Comparable<Line> {
+    private static final int NON_NUMERIC = Integer.MAX_VALUE;
+    private static final int MAX_NUMBER = Integer.MAX_VALUE / 2 - 1;    // value * 2 + 1 < NON_NUMERIC
+
     private String number;
     private String name;
     private List<Station> stations;
+    @Getter(AccessLevel.NONE)
+    private Map<String, Station> stationIndex;     // имя станции без учёта регистра -> станция
+    @Getter(AccessLevel.NONE)
+    private int sortKey;                            // порядок линий, считается один раз по номеру
 
     public Line(String number, String name) {
         this.number = number;
         this.name = name;
         this.stations = new ArrayList<>();
+        this.stationIndex = new HashMap<>();
+        this.sortKey = sortKey(number);
     }
 
     public void addStation(Station station) {
         stations.add(station);
+        stationIndex.putIfAbsent(station.getNameKey(), station);
+    }
+
+    public Station getStationByName(String stationName) {
+        return stationIndex.get(nameKey(stationName));
+    }
+
+    // Запрещает изменение станций линии (линии неизменяемого MetroNetwork)
+    void seal() {
+        stations = Collections.unmodifiableList(stations);
+        stationIndex = Collections.unmodifiableMap(stationIndex);
+    }
+
+    // Ключ имени без учёта регистра: посимвольно как в equalsIgnoreCase/compareToIgnoreCase,
+    // поэтому равенство и порядок ключей совпадают с этими методами
+    static String nameKey(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
     }
 
-    private double getDoubleNumberLine() {
-        return !number.matches("\\d+") ?
-                Double.parseDouble(number.replaceAll("\\D", ".5")) :
-                Double.parseDouble(number);
+    // Номер "11" -> 22, номер с буквой "11А" -> 23: тот же порядок, что и прежние 11 и 11.5.
+    // Номера не с цифры ("D1", "МЦК") идут после всех числовых и сравниваются как строки
+    private static int sortKey(String number) {
+        int digits = 0;
+        int value = 0;
+        while (digits < number.length() && number.charAt(digits) >= '0' && number.charAt(digits) <= '9') {
+            int digit = number.charAt(digits) - '0';
+            value = value > (MAX_NUMBER - digit) / 10 ? MAX_NUMBER : value * 10 + digit;     // без переполнения
+            digits++;
+        }
+        if (digits == 0) {
+            return NON_NUMERIC;
+        }
+        return digits == number.length() ? value * 2 : value * 2 + 1;
     }
 
     @Override
     public int compareTo(Line line) {
-        return Double.compare(getDoubleNumberLine(), line.getDoubleNumberLine());
+        int comparison = Integer.compare(sortKey, line.sortKey);
+        return comparison == 0 && sortKey == NON_NUMERIC ? number.compareTo(line.number) : comparison;
     }
 }
@@ -0,0 +1,157 @@
+package metro;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Файл линий метро по записи на линию со станциями в порядке следования и индексом смещений в начале.
+// open() читает только заголовок и индекс; readLine() читает с диска одну запись нужной линии.
+// Формат (big-endian):
+//  заголовок:  MAGIC, VERSION, lineCount, indexBytes                                   (int)
+//  индекс:     на линию - длина номера (short), номер (UTF-8), смещение записи (long), длина записи (int)
+//  запись:     длина имени (int), имя (UTF-8), stationCount (int),
+//              stationEnds[stationCount] (int, концы имён в байтах станций), байты имён станций (UTF-8)
+public final class LineColumns implements Closeable {
+    public static final int MAGIC = 0x4D4C494E;     // "MLIN"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    private final FileChannel channel;
+    private final Map<String, long[]> index;        // номер линии -> {смещение, длина}, в порядке линий
+
+    private LineColumns(FileChannel channel, Map<String, long[]> index) {
+        this.channel = channel;
+        this.index = index;
+    }
+
+    public static LineColumns open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IllegalArgumentException("Файл линий обрезан: нет заголовка");
+            }
+            ByteBuffer header = read(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Файл не является файлом линий метро");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Неподдерживаемая версия файла линий: " + version);
+            }
+            int lineCount = header.getInt();
+            int indexBytes = header.getInt();
+            // Размеры из файла проверяются до выделения буферов: повреждённый заголовок не должен съесть память
+            if (indexBytes < 0 || indexBytes > size - HEADER_BYTES || lineCount < 0 || lineCount > indexBytes / 14) {
+                throw new IllegalArgumentException("Файл линий обрезан или повреждён: индекс " + indexBytes
+                        + " байт, линий " + lineCount + ", размер файла " + size);
+            }
+            ByteBuffer buffer = read(channel, HEADER_BYTES, indexBytes);
+            Map<String, long[]> index = new LinkedHashMap<>();
+            try {
+                for (int i = 0; i < lineCount; i++) {
+                    String number = string(buffer, buffer.getShort());
+                    long offset = buffer.getLong();
+                    int length = buffer.getInt();
+                    if (offset < HEADER_BYTES + indexBytes || length < 8 || offset > size - length) {
+                        throw new IllegalArgumentException("Файл линий обрезан или повреждён: запись линии " + number
+                                + " [" + offset + ", +" + length + "), размер файла " + size);
+                    }
+                    index.put(number, new long[]{offset, length});
+                }
+            } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+                throw new IllegalArgumentException("Файл линий обрезан: индекс короче " + lineCount + " линий", ex);
+            }
+            return new LineColumns(channel, index);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public int getLineCount() {
+        return index.size();
+    }
+
+    // Номера линий в порядке файла
+    public List<String> getLineNumbers() {
+        return Collections.unmodifiableList(new ArrayList<>(index.keySet()));
+    }
+
+    public boolean hasLine(String number) {
+        return index.containsKey(number);
+    }
+
+    // Линия со станциями по порядку или null, если линии нет в файле
+    public Line readLine(String number) throws IOException {
+        long[] entry = index.get(number);
+        if (entry == null) return null;
+        int length = (int) entry[1];
+        ByteBuffer buffer = read(channel, entry[0], length);
+        int nameLength = buffer.getInt();
+        if (nameLength < 0 || nameLength > length - 8) {
+            throw corrupted(number);
+        }
+        Line line = new Line(number, string(buffer, nameLength));
+        int stationCount = buffer.getInt();
+        int endsPos = buffer.position();
+        if (stationCount < 0 || stationCount > (length - endsPos) / 4) {
+            throw corrupted(number);
+        }
+        int dataPos = endsPos + stationCount * 4;
+        int dataBytes = length - dataPos;
+        int start = 0;
+        for (int i = 0; i < stationCount; i++) {
+            int end = buffer.getInt(endsPos + i * 4);
+            if (end < start || end > dataBytes) {
+                throw corrupted(number);
+            }
+            line.addStation(new Station(
+                    new String(buffer.array(), dataPos + start, end - start, StandardCharsets.UTF_8), line));
+            start = end;
+        }
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    //==================================================================================================================
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Файл линий обрезан");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static IllegalArgumentException corrupted(String number) {
+        return new IllegalArgumentException("Файл линий обрезан или повреждён: запись линии " + number);
+    }
+
+    private static String string(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,33 @@
+package metro;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Текущий опубликованный снимок метро. Чтение - без блокировок, замена снимка - атомарная,
+// читатели продолжают работать со старым снимком, пока не запросят новый через get()
+public final class LiveMetroNetwork {
+    private final AtomicReference<MetroNetwork> current;
+
+    public LiveMetroNetwork(MetroNetwork initial) {
+        this.current = new AtomicReference<>(initial);
+    }
+
+    public MetroNetwork get() {
+        return current.get();
+    }
+
+    // Публикует новый снимок и возвращает предыдущий
+    public MetroNetwork publish(MetroNetwork network) {
+        return current.getAndSet(network);
+    }
+
+    // Атомарно заменяет снимок результатом rebuild (функция может быть вызвана повторно при гонке)
+    public MetroNetwork update(UnaryOperator<MetroNetwork> rebuild) {
+        return current.updateAndGet(rebuild);
+    }
+
+    // Применяет разницу к текущему снимку и публикует результат
+    public MetroNetwork apply(MetroDiff diff) {
+        return diff.isEmpty() ? get() : update(diff::applyTo);
+    }
+}
@@ -0,0 +1,51 @@
+package metro;
+
+import metrics.Counter;
+import metrics.Metrics;
+import metrics.Timer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Метрики поиска в Metro и MetroNetwork по каждому методу: число вызовов, промахи и время.
+// Сам поиск занимает десятки наносекунд - столько же стоит System.nanoTime(), поэтому время
+// замеряется у случайной выборки из 1/SAMPLE_RATE вызовов, а вызовы и промахи считаются все
+final class LookupMetrics {
+    static final int SAMPLE_RATE = 64;
+
+    static final Lookup LINE_BY_NAME = new Lookup("getLineByName");
+    static final Lookup LINE_BY_NUMBER = new Lookup("getLineByNumber");
+    static final Lookup STATION_BY_NAME_AND_LINE = new Lookup("getStationByNameAndLine");
+    static final Lookup STATIONS_BY_NAME = new Lookup("getStationsByName");
+
+    private LookupMetrics() {
+    }
+
+    static final class Lookup {
+        private final Counter calls;
+        private final Counter misses;
+        private final Timer timer;
+
+        private Lookup(String method) {
+            String labels = Metrics.label("method", method);
+            this.calls = Metrics.counter("metro_lookup_total", labels, "Вызовы поиска линий и станций");
+            this.misses = Metrics.counter("metro_lookup_misses_total", labels, "Поиски, не нашедшие линию или станцию");
+            this.timer = Metrics.timer("metro_lookup_seconds", labels,
+                    "Время поиска линий и станций (выборка 1/" + SAMPLE_RATE + " вызовов)");
+        }
+
+        // Возвращает момент начала, если вызов попал в выборку, иначе 0
+        long start() {
+            calls.increment();
+            return ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0 ? timer.start() : 0;
+        }
+
+        void stop(long start, Object found) {
+            if (start != 0) {
+                timer.stop(start);
+            }
+            if (found == null) {
+                misses.increment();
+            }
+        }
+    }
+}
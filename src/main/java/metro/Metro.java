@@ -1,45 +1,59 @@
 package metro;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+// Изменяемая модель метро, которую наполняют парсер и загрузчики. Для чтения из нескольких потоков
+// из неё собирается неизменяемый снимок MetroNetwork.copyOf(metro)
 @Getter
-public class Metro {
+public class Metro implements MetroView {
     private final static Logger rootLogger = LogManager.getRootLogger();
     private final static Logger errorLogger = LogManager.getLogger("errorLogger");
     private final static Logger infoLogger = LogManager.getLogger("infoLogger");
 
-    private static Metro metro;
     private TreeSet<Line> lines;
     private TreeSet<Station> stations;
     private TreeMap<Station, TreeSet<Station>> connections;
 
-    private Metro() {
+    // Хеш-индексы для поиска за O(1), поддерживаются в addLine/addStation
+    @Getter(AccessLevel.NONE)
+    private Map<String, Line> linesByName;
+    @Getter(AccessLevel.NONE)
+    private Map<String, Line> linesByNumber;
+    @Getter(AccessLevel.NONE)
+    private Map<String, List<Station>> stationsByName;
+
+    public Metro() {
         lines = new TreeSet<>();
         stations = new TreeSet<>();
         connections = new TreeMap<>();
+        linesByName = new HashMap<>();
+        linesByNumber = new HashMap<>();
+        stationsByName = new HashMap<>();
         rootLogger.info("Метро готово к построению");
     }
 
-    public static Metro getInstance() {
-        if (metro == null) {
-            metro = new Metro();
-        }
-        return metro;
-    }
-
     public void addStation(Station station) {
         stations.add(station);
+        stationsByName.computeIfAbsent(Line.nameKey(station.getName()), key -> new ArrayList<>(1))
+                .add(station);
         infoLogger.info("\tДобавлена станция: {}", station.getName());
     }
 
     public void addLine(Line line) {
         lines.add(line);
+        linesByName.putIfAbsent(Line.nameKey(line.getName()), line);
+        linesByNumber.putIfAbsent(line.getNumber(), line);
         infoLogger.info("В метро добавлена линия: {} ({})",
                 line.getName(),
                 line.getNumber());
@@ -47,6 +61,7 @@ public class Metro {
 
     public void addConnections(Station station, TreeSet<Station> connectedStations) {
         connections.put(station, connectedStations);
+        if (!infoLogger.isInfoEnabled()) return;      // Строка со списком станций собирается, только если её запишут
         StringBuilder sb = new StringBuilder("{");
         connectedStations.forEach(con ->
                 sb.append(con.getName())
@@ -61,33 +76,55 @@ public class Metro {
                 sb.toString());
     }
 
+    @Override
     public Line getLineByName(String lineName) {
-        for (Line line : lines) {
-            if (lineName.equalsIgnoreCase(line.getName())) {
-                return line;
-            }
+        long start = LookupMetrics.LINE_BY_NAME.start();
+        Line line = linesByName.get(Line.nameKey(lineName));
+        LookupMetrics.LINE_BY_NAME.stop(start, line);
+        if (line == null) {
+            errorLogger.error("Линия с именем {} не найдена", lineName);
         }
-        errorLogger.error("Линия с именем {} не найдена", lineName);
-        return null;
+        return line;
     }
 
+    @Override
     public Line getLineByNumber(String lineNumber) {
-        for (Line line : lines) {
-            if (lineNumber.equals(line.getNumber()))
-                return line;
+        long start = LookupMetrics.LINE_BY_NUMBER.start();
+        Line line = linesByNumber.get(lineNumber);
+        LookupMetrics.LINE_BY_NUMBER.stop(start, line);
+        if (line == null) {
+            errorLogger.error("Линия с номером {} не найдена", lineNumber);
         }
-        errorLogger.error("Линия с номером {} не найдена", lineNumber);
-        return null;
+        return line;
     }
 
+    @Override
     public Station getStationByNameAndLine(String stationName, Line line) {
-        List<Station> stations = line.getStations();
-        for (Station station : stations) {
-            if (stationName.equalsIgnoreCase(station.getName())) {
-                return station;
-            }
+        long start = LookupMetrics.STATION_BY_NAME_AND_LINE.start();
+        Station station = line.getStationByName(stationName);
+        LookupMetrics.STATION_BY_NAME_AND_LINE.stop(start, station);
+        if (station == null) {
+            errorLogger.error("Станция с именем {} не найдена", stationName);
         }
-        errorLogger.error("Станция с именем {} не найдена", stationName);
-        return null;
+        return station;
+    }
+
+    // Все станции с таким именем (на разных линиях), линию знать не нужно
+    @Override
+    public List<Station> getStationsByName(String stationName) {
+        long start = LookupMetrics.STATIONS_BY_NAME.start();
+        List<Station> found = stationsByName.get(Line.nameKey(stationName));
+        LookupMetrics.STATIONS_BY_NAME.stop(start, found);
+        if (found == null) {
+            errorLogger.error("Станция с именем {} не найдена", stationName);
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(found);
+    }
+
+    @Override
+    public Station getStationByName(String stationName) {
+        List<Station> found = getStationsByName(stationName);
+        return found.isEmpty() ? null : found.get(0);
     }
 }
@@ -0,0 +1,314 @@
+package metro;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Структурная разница двух снимков метро: добавленные, удалённые и переименованные линии и станции,
+// добавленные и удалённые пересадки. Линии сопоставляются по номеру, станции - по имени внутри линии.
+// applyTo(before) строит снимок, равный after, не пересобирая неизменившиеся данные из источника
+@Getter
+public final class MetroDiff {
+    private static final MetroDiff EMPTY = builder().build();
+
+    private final List<LineEntry> addedLines;
+    private final List<String> removedLines;                    // номера линий
+    private final Map<String, String> renamedLines;             // номер линии -> новое имя
+    private final Map<String, StationChanges> stationChanges;   // номер линии -> изменения её станций
+    private final Set<Transfer> addedTransfers;
+    private final Set<Transfer> removedTransfers;
+
+    private MetroDiff(Builder builder) {
+        this.addedLines = Collections.unmodifiableList(new ArrayList<>(builder.addedLines));
+        this.removedLines = Collections.unmodifiableList(new ArrayList<>(builder.removedLines));
+        this.renamedLines = Collections.unmodifiableMap(new LinkedHashMap<>(builder.renamedLines));
+        this.stationChanges = Collections.unmodifiableMap(new LinkedHashMap<>(builder.stationChanges));
+        this.addedTransfers = Collections.unmodifiableSet(new LinkedHashSet<>(builder.addedTransfers));
+        this.removedTransfers = Collections.unmodifiableSet(new LinkedHashSet<>(builder.removedTransfers));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static MetroDiff empty() {
+        return EMPTY;
+    }
+
+    // Разница между предыдущим снимком before и свежим after
+    public static MetroDiff between(MetroView before, MetroView after) {
+        Builder diff = builder();
+        Map<String, Line> beforeLines = linesByNumber(before);
+        Map<String, Line> afterLines = linesByNumber(after);
+        for (String number : beforeLines.keySet()) {
+            if (!afterLines.containsKey(number)) {
+                diff.removeLine(number);
+            }
+        }
+        for (Line line : afterLines.values()) {
+            String number = line.getNumber();
+            Line previous = beforeLines.get(number);
+            if (previous == null) {
+                diff.addLine(number, line.getName(), stationNames(line));
+                continue;
+            }
+            if (!previous.getName().equals(line.getName())) {
+                diff.renameLine(number, line.getName());
+            }
+            List<String> previousStations = stationNames(previous);
+            List<String> stations = stationNames(line);
+            if (!previousStations.equals(stations)) {
+                diff.changeStations(number, StationChanges.between(previousStations, stations));
+            }
+        }
+
+        Set<Transfer> beforeTransfers = transfers(before);
+        Set<Transfer> afterTransfers = transfers(after);
+        for (Transfer transfer : beforeTransfers) {
+            if (!afterTransfers.contains(transfer)) {
+                diff.removeTransfer(transfer);
+            }
+        }
+        for (Transfer transfer : afterTransfers) {
+            if (!beforeTransfers.contains(transfer)) {
+                diff.addTransfer(transfer);
+            }
+        }
+        return diff.build();
+    }
+
+    public boolean isEmpty() {
+        return addedLines.isEmpty() && removedLines.isEmpty() && renamedLines.isEmpty()
+                && stationChanges.isEmpty() && addedTransfers.isEmpty() && removedTransfers.isEmpty();
+    }
+
+    // Новый снимок: base с применёнными изменениями. Неизменившиеся линии и пересадки переносятся как есть
+    public MetroNetwork applyTo(MetroView base) {
+        MetroNetwork.Builder builder = MetroNetwork.builder();
+        Set<String> removed = new HashSet<>(removedLines);
+        for (Line line : base.getLines()) {
+            String number = line.getNumber();
+            if (removed.contains(number)) continue;
+            builder.addLine(number, renamedLines.getOrDefault(number, line.getName()));
+            List<String> stations = stationNames(line);
+            StationChanges changes = stationChanges.get(number);
+            for (String stationName : changes == null ? stations : changes.apply(stations)) {
+                builder.addStation(number, stationName);
+            }
+        }
+        for (LineEntry line : addedLines) {
+            builder.addLine(line.getNumber(), line.getName());
+            line.getStations().forEach(stationName -> builder.addStation(line.getNumber(), stationName));
+        }
+        base.getConnections().forEach((from, connected) -> connected.forEach(to -> {
+            Transfer transfer = Transfer.of(from, to);
+            if (!removedTransfers.contains(transfer)) {
+                transfer.addTo(builder);
+            }
+        }));
+        addedTransfers.forEach(transfer -> transfer.addTo(builder));
+        return builder.build();
+    }
+
+    // Краткая сводка для журнала: "линии +1 -0 ~0, станции +2 -0 ~1, пересадки +2 -0"
+    public String summary() {
+        int addedStations = 0;
+        int removedStations = 0;
+        int renamedStations = 0;
+        for (LineEntry line : addedLines) {
+            addedStations += line.getStations().size();
+        }
+        for (StationChanges changes : stationChanges.values()) {
+            addedStations += changes.getAdded().size();
+            removedStations += changes.getRemoved().size();
+            renamedStations += changes.getRenamed().size();
+        }
+        return String.format("линии +%d -%d ~%d, станции +%d -%d ~%d, пересадки +%d -%d",
+                addedLines.size(), removedLines.size(), renamedLines.size(),
+                addedStations, removedStations, renamedStations,
+                addedTransfers.size(), removedTransfers.size());
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+
+    //==================================================================================================================
+
+    private static Map<String, Line> linesByNumber(MetroView metro) {
+        Map<String, Line> lines = new LinkedHashMap<>();
+        for (Line line : metro.getLines()) {
+            lines.putIfAbsent(line.getNumber(), line);
+        }
+        return lines;
+    }
+
+    private static List<String> stationNames(Line line) {
+        List<String> names = new ArrayList<>(line.getStations().size());
+        for (Station station : line.getStations()) {
+            names.add(station.getName());
+        }
+        return names;
+    }
+
+    private static Set<Transfer> transfers(MetroView metro) {
+        Set<Transfer> transfers = new LinkedHashSet<>();
+        metro.getConnections().forEach((from, connected) ->
+                connected.forEach(to -> transfers.add(Transfer.of(from, to))));
+        return transfers;
+    }
+
+    // Новая линия целиком
+    @Getter
+    @AllArgsConstructor
+    public static final class LineEntry {
+        private final String number;
+        private final String name;
+        private final List<String> stations;
+    }
+
+    // Пересадка в виде номеров линий и имён станций - не зависит от объектов конкретного снимка
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static final class Transfer {
+        private final String lineFrom;
+        private final String stationFrom;
+        private final String lineTo;
+        private final String stationTo;
+
+        public static Transfer of(Station from, Station to) {
+            return new Transfer(from.getLine().getNumber(), from.getName(), to.getLine().getNumber(), to.getName());
+        }
+
+        private void addTo(MetroNetwork.Builder builder) {
+            builder.addConnection(lineFrom, stationFrom, lineTo, stationTo);
+        }
+    }
+
+    // Изменения станций одной линии. added - новые станции по индексу в новом списке,
+    // renamed - старое имя -> новое (станция на том же месте между теми же соседями).
+    // order задаётся, только если порядок станций изменился так, что его не восстановить по остальным полям
+    @Getter
+    @AllArgsConstructor
+    public static final class StationChanges {
+        private final NavigableMap<Integer, String> added;
+        private final List<String> removed;
+        private final Map<String, String> renamed;
+        private final List<String> order;
+
+        static StationChanges between(List<String> before, List<String> after) {
+            Set<String> beforeNames = new HashSet<>(before);
+            Set<String> afterNames = new HashSet<>(after);
+            Set<String> removed = new LinkedHashSet<>();
+            for (String name : before) {
+                if (!afterNames.contains(name)) {
+                    removed.add(name);
+                }
+            }
+            NavigableMap<Integer, String> added = new TreeMap<>();
+            Map<String, String> renamed = new LinkedHashMap<>();
+            Map<String, String> renamedBack = new HashMap<>();
+            for (int i = 0; i < after.size(); i++) {
+                String name = after.get(i);
+                if (beforeNames.contains(name)) continue;
+                // Новая станция занимает место удалённой после того же соседа - это переименование
+                int index = -1;
+                if (i == 0) {
+                    index = 0;
+                } else {
+                    String neighbour = after.get(i - 1);
+                    String previousName = beforeNames.contains(neighbour) ? neighbour : renamedBack.get(neighbour);
+                    if (previousName != null) {
+                        index = before.indexOf(previousName) + 1;
+                    }
+                }
+                if (index >= 0 && index < before.size() && removed.remove(before.get(index))) {
+                    renamed.put(before.get(index), name);
+                    renamedBack.put(name, before.get(index));
+                } else {
+                    added.put(i, name);
+                }
+            }
+            StationChanges changes = new StationChanges(added, new ArrayList<>(removed), renamed, null);
+            if (!changes.apply(before).equals(after)) {
+                changes = new StationChanges(added, new ArrayList<>(removed), renamed, new ArrayList<>(after));
+            }
+            return changes;
+        }
+
+        public List<String> apply(List<String> stations) {
+            if (order != null) {
+                return new ArrayList<>(order);
+            }
+            Set<String> removedNames = new HashSet<>(removed);
+            List<String> result = new ArrayList<>(stations.size() + added.size());
+            for (String name : stations) {
+                if (removedNames.contains(name)) continue;
+                result.add(renamed.getOrDefault(name, name));
+            }
+            added.forEach((index, name) -> result.add(Math.min(index, result.size()), name));
+            return result;
+        }
+    }
+
+    // Собирает разницу вручную - например, при чтении файла-патча
+    public static final class Builder {
+        private final List<LineEntry> addedLines = new ArrayList<>();
+        private final List<String> removedLines = new ArrayList<>();
+        private final Map<String, String> renamedLines = new LinkedHashMap<>();
+        private final Map<String, StationChanges> stationChanges = new LinkedHashMap<>();
+        private final Set<Transfer> addedTransfers = new LinkedHashSet<>();
+        private final Set<Transfer> removedTransfers = new LinkedHashSet<>();
+
+        private Builder() {
+        }
+
+        public Builder addLine(String number, String name, List<String> stations) {
+            addedLines.add(new LineEntry(number, name, Collections.unmodifiableList(new ArrayList<>(stations))));
+            return this;
+        }
+
+        public Builder removeLine(String number) {
+            removedLines.add(number);
+            return this;
+        }
+
+        public Builder renameLine(String number, String name) {
+            renamedLines.put(number, name);
+            return this;
+        }
+
+        public Builder changeStations(String lineNumber, StationChanges changes) {
+            stationChanges.put(lineNumber, changes);
+            return this;
+        }
+
+        public Builder addTransfer(Transfer transfer) {
+            addedTransfers.add(transfer);
+            return this;
+        }
+
+        public Builder removeTransfer(Transfer transfer) {
+            removedTransfers.add(transfer);
+            return this;
+        }
+
+        public MetroDiff build() {
+            return new MetroDiff(this);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package metro;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Неизменяемый снимок сети метро. Создаётся через Builder, после создания не меняется,
+// поэтому может читаться из любого числа потоков без синхронизации (см. LiveMetroNetwork)
+public final class MetroNetwork implements MetroView {
+    private final static Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    private final NavigableSet<Line> lines;
+    private final NavigableSet<Station> stations;
+    private final NavigableMap<Station, NavigableSet<Station>> connections;
+    private final Map<String, Line> linesByName;
+    private final Map<String, Line> linesByNumber;
+    private final Map<String, List<Station>> stationsByName;
+
+    private MetroNetwork(Builder builder) {
+        TreeSet<Line> lines = new TreeSet<>();
+        TreeSet<Station> stations = new TreeSet<>();
+        Map<String, Line> linesByName = new HashMap<>();
+        Map<String, Line> linesByNumber = new HashMap<>();
+        Map<String, List<Station>> stationsByName = new HashMap<>();
+        for (Map.Entry<String, LineDraft> entry : builder.lines.entrySet()) {
+            LineDraft draft = entry.getValue();
+            Line line = new Line(entry.getKey(), draft.name);
+            for (String stationName : draft.stations) {
+                Station station = new Station(stationName, line);
+                line.addStation(station);
+                if (stations.add(station)) {
+                    stationsByName.computeIfAbsent(Line.nameKey(stationName), key -> new ArrayList<>(1))
+                            .add(station);
+                }
+            }
+            line.seal();
+            lines.add(line);
+            linesByName.putIfAbsent(Line.nameKey(line.getName()), line);
+            linesByNumber.putIfAbsent(line.getNumber(), line);
+        }
+
+        TreeMap<Station, TreeSet<Station>> connections = new TreeMap<>();
+        for (String[] connection : builder.connections) {
+            Station from = find(linesByNumber, connection[0], connection[1]);
+            Station to = find(linesByNumber, connection[2], connection[3]);
+            if (from == null || to == null) {
+                errorLogger.error("Пересадка {} ({}) -> {} ({}) ссылается на неизвестную станцию",
+                        connection[1], connection[0], connection[3], connection[2]);
+                continue;
+            }
+            connections.computeIfAbsent(from, key -> new TreeSet<>()).add(to);
+        }
+        TreeMap<Station, NavigableSet<Station>> frozenConnections = new TreeMap<>();
+        connections.forEach((station, connected) ->
+                frozenConnections.put(station, Collections.unmodifiableNavigableSet(connected)));
+        stationsByName.replaceAll((name, list) -> Collections.unmodifiableList(list));
+
+        this.lines = Collections.unmodifiableNavigableSet(lines);
+        this.stations = Collections.unmodifiableNavigableSet(stations);
+        this.connections = Collections.unmodifiableNavigableMap(frozenConnections);
+        this.linesByName = Collections.unmodifiableMap(linesByName);
+        this.linesByNumber = Collections.unmodifiableMap(linesByNumber);
+        this.stationsByName = Collections.unmodifiableMap(stationsByName);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static MetroNetwork copyOf(MetroView metro) {
+        return builder().addAll(metro).build();
+    }
+
+    @Override
+    public NavigableSet<Line> getLines() {
+        return lines;
+    }
+
+    @Override
+    public NavigableSet<Station> getStations() {
+        return stations;
+    }
+
+    @Override
+    public NavigableMap<Station, NavigableSet<Station>> getConnections() {
+        return connections;
+    }
+
+    @Override
+    public Line getLineByName(String lineName) {
+        long start = LookupMetrics.LINE_BY_NAME.start();
+        Line line = linesByName.get(Line.nameKey(lineName));
+        LookupMetrics.LINE_BY_NAME.stop(start, line);
+        if (line == null) {
+            errorLogger.error("Линия с именем {} не найдена", lineName);
+        }
+        return line;
+    }
+
+    @Override
+    public Line getLineByNumber(String lineNumber) {
+        long start = LookupMetrics.LINE_BY_NUMBER.start();
+        Line line = linesByNumber.get(lineNumber);
+        LookupMetrics.LINE_BY_NUMBER.stop(start, line);
+        if (line == null) {
+            errorLogger.error("Линия с номером {} не найдена", lineNumber);
+        }
+        return line;
+    }
+
+    @Override
+    public Station getStationByNameAndLine(String stationName, Line line) {
+        long start = LookupMetrics.STATION_BY_NAME_AND_LINE.start();
+        Station station = line.getStationByName(stationName);
+        LookupMetrics.STATION_BY_NAME_AND_LINE.stop(start, station);
+        if (station == null) {
+            errorLogger.error("Станция с именем {} не найдена", stationName);
+        }
+        return station;
+    }
+
+    @Override
+    public List<Station> getStationsByName(String stationName) {
+        long start = LookupMetrics.STATIONS_BY_NAME.start();
+        List<Station> found = stationsByName.get(Line.nameKey(stationName));
+        LookupMetrics.STATIONS_BY_NAME.stop(start, found);
+        if (found == null) {
+            errorLogger.error("Станция с именем {} не найдена", stationName);
+            return Collections.emptyList();
+        }
+        return found;
+    }
+
+    @Override
+    public Station getStationByName(String stationName) {
+        List<Station> found = getStationsByName(stationName);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    //==================================================================================================================
+
+    private static Station find(Map<String, Line> linesByNumber, String lineNumber, String stationName) {
+        Line line = linesByNumber.get(lineNumber);
+        return line == null ? null : line.getStationByName(stationName);
+    }
+
+    private static class LineDraft {
+        private final String name;
+        private final List<String> stations = new ArrayList<>();
+
+        LineDraft(String name) {
+            this.name = name;
+        }
+    }
+
+    // Собирает линии, станции и пересадки по номерам линий и именам станций.
+    // Builder не потокобезопасен; build() можно вызывать повторно - каждый раз создаётся новый снимок
+    public static final class Builder {
+        private final Map<String, LineDraft> lines = new LinkedHashMap<>();
+        private final List<String[]> connections = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder addLine(String number, String name) {
+            lines.putIfAbsent(number, new LineDraft(name));
+            return this;
+        }
+
+        public Builder addStation(String lineNumber, String stationName) {
+            LineDraft line = lines.get(lineNumber);
+            if (line == null) {
+                throw new IllegalArgumentException("Линия с номером " + lineNumber + " не добавлена");
+            }
+            line.stations.add(stationName);
+            return this;
+        }
+
+        public Builder addConnection(String lineFrom, String stationFrom, String lineTo, String stationTo) {
+            connections.add(new String[]{lineFrom, stationFrom, lineTo, stationTo});
+            return this;
+        }
+
+        public Builder addAll(MetroView metro) {
+            for (Line line : metro.getLines()) {
+                addLine(line.getNumber(), line.getName());
+                line.getStations().forEach(station -> addStation(line.getNumber(), station.getName()));
+            }
+            metro.getConnections().forEach((from, connected) -> connected.forEach(to ->
+                    addConnection(from.getLine().getNumber(), from.getName(), to.getLine().getNumber(), to.getName())));
+            return this;
+        }
+
+        public MetroNetwork build() {
+            return new MetroNetwork(this);
+        }
+    }
+}
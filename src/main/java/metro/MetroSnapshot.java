@@ -0,0 +1,205 @@
+package metro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeSet;
+
+// Бинарный снимок метро, отображённый в память (FileChannel.map). Запросы читают данные прямо из буфера,
+// объекты Line/Station создаются только в toMetro(). Формат (big-endian, все поля - int):
+//  заголовок:      MAGIC, VERSION, stringCount, stringBytes, lineCount, stationCount, lineStationCount, transferCount
+//  строки:         stringOffsets[stringCount + 1], UTF-8 байты (выравнены до 4)
+//  линии:          по 4 числа на линию - number, name (индексы строк), начало и длина в lineStations
+//  lineStations:   id станций линий подряд
+//  станции:        по 2 числа на станцию - name (индекс строки), индекс линии
+//  пересадки:      transferOffsets[stationCount + 1], transferTargets[transferCount] (id станций)
+public final class MetroSnapshot {
+    public static final int MAGIC = 0x4D534E50;     // "MSNP"
+    public static final int VERSION = 1;
+    public static final int HEADER_INTS = 8;
+
+    private final ByteBuffer buffer;
+    private final int lineCount;
+    private final int stationCount;
+    private final int stringOffsetsPos;
+    private final int stringDataPos;
+    private final int linesPos;
+    private final int lineStationsPos;
+    private final int stationsPos;
+    private final int transferOffsetsPos;
+    private final int transferTargetsPos;
+
+    public MetroSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_INTS * 4) {
+            throw new IllegalArgumentException("Снимок обрезан: нет заголовка");
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Файл не является снимком метро");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия снимка: " + version);
+        }
+        int stringCount = buffer.getInt(8);
+        int stringBytes = buffer.getInt(12);
+        lineCount = buffer.getInt(16);
+        stationCount = buffer.getInt(20);
+        int lineStationCount = buffer.getInt(24);
+        int transferCount = buffer.getInt(28);
+        if (stringCount < 0 || stringBytes < 0 || lineCount < 0 || stationCount < 0
+                || lineStationCount < 0 || transferCount < 0) {
+            throw new IllegalArgumentException("Снимок повреждён: отрицательные размеры в заголовке");
+        }
+        // Размер считаем в long: повреждённый заголовок не должен переполнять смещения
+        long size = HEADER_INTS * 4L
+                + (stringCount + 1L) * 4 + align(stringBytes)
+                + lineCount * 16L
+                + lineStationCount * 4L
+                + stationCount * 8L
+                + (stationCount + 1L) * 4 + transferCount * 4L;
+        if (size > buffer.capacity()) {
+            throw new IllegalArgumentException("Снимок обрезан: ожидается " + size + " байт, в файле "
+                    + buffer.capacity());
+        }
+
+        stringOffsetsPos = HEADER_INTS * 4;
+        stringDataPos = stringOffsetsPos + (stringCount + 1) * 4;
+        linesPos = stringDataPos + align(stringBytes);
+        lineStationsPos = linesPos + lineCount * 16;
+        stationsPos = lineStationsPos + lineStationCount * 4;
+        transferOffsetsPos = stationsPos + stationCount * 8;
+        transferTargetsPos = transferOffsetsPos + (stationCount + 1) * 4;
+    }
+
+    public static MetroSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MetroSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    public String getLineNumber(int line) {
+        return string(buffer.getInt(linesPos + line * 16));
+    }
+
+    public String getLineName(int line) {
+        return string(buffer.getInt(linesPos + line * 16 + 4));
+    }
+
+    public int getLineStationCount(int line) {
+        return buffer.getInt(linesPos + line * 16 + 12);
+    }
+
+    // id i-й по порядку станции линии
+    public int getLineStation(int line, int index) {
+        int first = buffer.getInt(linesPos + line * 16 + 8);
+        return buffer.getInt(lineStationsPos + (first + index) * 4);
+    }
+
+    public String getStationName(int station) {
+        return string(buffer.getInt(stationsPos + station * 8));
+    }
+
+    public int getStationLine(int station) {
+        return buffer.getInt(stationsPos + station * 8 + 4);
+    }
+
+    public int getTransferCount(int station) {
+        return buffer.getInt(transferOffsetsPos + (station + 1) * 4) - buffer.getInt(transferOffsetsPos + station * 4);
+    }
+
+    public int getTransfer(int station, int index) {
+        int first = buffer.getInt(transferOffsetsPos + station * 4);
+        return buffer.getInt(transferTargetsPos + (first + index) * 4);
+    }
+
+    // Индекс линии по номеру или -1
+    public int findLine(String lineNumber) {
+        byte[] key = lineNumber.getBytes(StandardCharsets.UTF_8);
+        for (int line = 0; line < lineCount; line++) {
+            if (stringEquals(buffer.getInt(linesPos + line * 16), key)) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    // id станции на линии по точному имени или -1
+    public int findStation(int line, String stationName) {
+        byte[] key = stationName.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0, count = getLineStationCount(line); i < count; i++) {
+            int station = getLineStation(line, i);
+            if (stringEquals(buffer.getInt(stationsPos + station * 8), key)) {
+                return station;
+            }
+        }
+        return -1;
+    }
+
+    // Полная десериализация снимка в новый Metro
+    public Metro toMetro() {
+        Metro metro = new Metro();
+        Line[] lines = new Line[lineCount];
+        for (int line = 0; line < lineCount; line++) {
+            lines[line] = new Line(getLineNumber(line), getLineName(line));
+            metro.addLine(lines[line]);
+        }
+        Station[] stations = new Station[stationCount];
+        for (int station = 0; station < stationCount; station++) {
+            stations[station] = new Station(getStationName(station), lines[getStationLine(station)]);
+            metro.addStation(stations[station]);
+        }
+        for (int line = 0; line < lineCount; line++) {
+            for (int i = 0, count = getLineStationCount(line); i < count; i++) {
+                lines[line].addStation(stations[getLineStation(line, i)]);
+            }
+        }
+        for (int station = 0; station < stationCount; station++) {
+            int count = getTransferCount(station);
+            if (count == 0) continue;
+            TreeSet<Station> connectedStations = new TreeSet<>();
+            for (int i = 0; i < count; i++) {
+                connectedStations.add(stations[getTransfer(station, i)]);
+            }
+            metro.addConnections(stations[station], connectedStations);
+        }
+        return metro;
+    }
+
+    //==================================================================================================================
+
+    private String string(int index) {
+        int start = buffer.getInt(stringOffsetsPos + index * 4);
+        int end = buffer.getInt(stringOffsetsPos + (index + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(stringDataPos + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int index, byte[] key) {
+        int start = buffer.getInt(stringOffsetsPos + index * 4);
+        int end = buffer.getInt(stringOffsetsPos + (index + 1) * 4);
+        if (end - start != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(stringDataPos + start + i) != key[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package metro;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+
+// Общий интерфейс чтения для изменяемого Metro и неизменяемого снимка MetroNetwork
+public interface MetroView {
+    NavigableSet<Line> getLines();
+
+    NavigableSet<Station> getStations();
+
+    NavigableMap<Station, ? extends NavigableSet<Station>> getConnections();
+
+    Line getLineByName(String lineName);
+
+    Line getLineByNumber(String lineNumber);
+
+    Station getStationByNameAndLine(String stationName, Line line);
+
+    List<Station> getStationsByName(String stationName);
+
+    Station getStationByName(String stationName);
+}
@@ -1,21 +1,28 @@
 package metro;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 @Getter
-@AllArgsConstructor
-@EqualsAndHashCode
+@EqualsAndHashCode(exclude = "nameKey")
 public class Station implements Comparable<Station> {
     private String name;
     private Line line;
+    @Getter(AccessLevel.PACKAGE)
+    private String nameKey;         // имя без учёта регистра, считается один раз для сравнений и индексов
+
+    public Station(String name, Line line) {
+        this.name = name;
+        this.line = line;
+        this.nameKey = Line.nameKey(name);
+    }
 
     @Override
     public int compareTo(Station station) {
         int lineComparison = line.compareTo(station.line);
         return lineComparison != 0 ?
                 lineComparison :
-                name.compareToIgnoreCase(station.name);
+                nameKey.compareTo(station.nameKey);
     }
 }
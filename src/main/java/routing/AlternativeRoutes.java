@@ -0,0 +1,136 @@
+package routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// K кратчайших маршрутов без циклов (алгоритм Йена). Все K-1 серий поисков ответвлений выполняет
+// один RouteFinder: исключения станций и рёбер снимаются за O(1), рабочие массивы не пересоздаются.
+// Экземпляр не потокобезопасен - для параллельных запросов см. RoutePlanner
+public final class AlternativeRoutes {
+    private final RouteGraph graph;
+    private final RouteFinder finder;
+    private final int[] nodes;
+    private final int[] costs;
+
+    public AlternativeRoutes(RouteGraph graph, EdgeCosts costs) {
+        this.graph = graph;
+        this.finder = new RouteFinder(graph, costs);
+        this.nodes = new int[graph.size()];
+        this.costs = new int[graph.size()];
+    }
+
+    public RouteGraph getGraph() {
+        return graph;
+    }
+
+    // До k маршрутов от source до target в порядке возрастания стоимости; departure - секунды от полуночи
+    public List<Path> find(int source, int target, int k, int departure) {
+        List<Path> found = new ArrayList<>(k);
+        if (k <= 0) return found;
+        finder.clearBlocks();
+        int cost = finder.search(source, target, departure, Heuristic.NONE);
+        if (cost == RouteFinder.UNREACHABLE) return found;
+        found.add(lastPath());
+
+        PriorityQueue<Path> candidates = new PriorityQueue<>();
+        Set<Path> seen = new HashSet<>(found);
+        while (found.size() < k) {
+            Path previous = found.get(found.size() - 1);
+            // Ответвление от каждой станции предыдущего маршрута, кроме последней
+            for (int i = 0; i + 1 < previous.nodes.length; i++) {
+                finder.clearBlocks();
+                for (Path path : found) {
+                    if (path.sharesPrefix(previous, i)) {
+                        finder.blockEdge(graph.edgeBetween(path.nodes[i], path.nodes[i + 1]));
+                    }
+                }
+                for (int j = 0; j < i; j++) {
+                    finder.blockStation(previous.nodes[j]);
+                }
+                int spurCost = finder.search(previous.nodes[i], target, departure, previous.costs[i], Heuristic.NONE);
+                if (spurCost == RouteFinder.UNREACHABLE) continue;
+                Path candidate = previous.join(i, nodes, costs, finder.copyPath(nodes, costs));
+                if (seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            if (candidates.isEmpty()) break;
+            found.add(candidates.poll());
+        }
+        finder.clearBlocks();
+        return found;
+    }
+
+    //==================================================================================================================
+
+    private Path lastPath() {
+        int length = finder.copyPath(nodes, costs);
+        return new Path(Arrays.copyOf(nodes, length), Arrays.copyOf(costs, length));
+    }
+
+    // Маршрут: станции (id RouteGraph) и стоимость от отправления до каждой из них
+    public static final class Path implements Comparable<Path> {
+        private final int[] nodes;
+        private final int[] costs;
+
+        Path(int[] nodes, int[] costs) {
+            this.nodes = nodes;
+            this.costs = costs;
+        }
+
+        public int[] getNodes() {
+            return nodes.clone();
+        }
+
+        public int length() {
+            return nodes.length;
+        }
+
+        public int node(int index) {
+            return nodes[index];
+        }
+
+        public int getCost() {
+            return costs[costs.length - 1];
+        }
+
+        // Совпадают ли станции [0..index] с other
+        boolean sharesPrefix(Path other, int index) {
+            if (nodes.length <= index + 1) return false;
+            for (int i = 0; i <= index; i++) {
+                if (nodes[i] != other.nodes[i]) return false;
+            }
+            return true;
+        }
+
+        // Начало этого маршрута до станции index и найденное от неё ответвление
+        Path join(int index, int[] spurNodes, int[] spurCosts, int spurLength) {
+            int length = index + spurLength;
+            int[] joinedNodes = Arrays.copyOf(nodes, length);
+            int[] joinedCosts = Arrays.copyOf(costs, length);
+            System.arraycopy(spurNodes, 0, joinedNodes, index, spurLength);
+            System.arraycopy(spurCosts, 0, joinedCosts, index, spurLength);
+            return new Path(joinedNodes, joinedCosts);
+        }
+
+        @Override
+        public int compareTo(Path other) {
+            int byCost = Integer.compare(getCost(), other.getCost());
+            return byCost != 0 ? byCost : Integer.compare(nodes.length, other.nodes.length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Path && Arrays.equals(nodes, ((Path) o).nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodes);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package routing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import metro.Station;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Пакетная оценка пар "откуда - куда" из большого CSV-файла (разделитель ';'):
+//   вход:  <линия>;<станция>;<линия>;<станция>[;...]     - остальные столбцы игнорируются
+//   выход: <линия>;<станция>;<линия>;<станция>;<время>;<пересадки>   (-1, если станция неизвестна или недостижима)
+// Файл читается порциями по chunkSize строк, поэтому память ограничена размером порции, а не файла.
+// Внутри порции пары группируются по станции отправления: один поиск от станции до всех обслуживает
+// всю группу. Группы делятся между потоками ForkJoinPool; порядок строк выхода совпадает с входом
+public final class BatchEvaluator {
+    private static final Logger rootLogger = LogManager.getRootLogger();
+    private static final Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int GROUPS_PER_TASK = 16;
+
+    private final RouteGraph graph;
+    private final int departure;
+    private final int chunkSize;
+    private final Map<String, Integer> stationIds = new HashMap<>();    // "<линия>;<станция>" -> id
+    private final ThreadLocal<RouteFinder> finders;
+
+    public BatchEvaluator(RouteGraph graph, EdgeCosts costs, int departure, int chunkSize) {
+        this.graph = graph;
+        this.departure = departure;
+        this.chunkSize = chunkSize;
+        for (int id = 0; id < graph.size(); id++) {
+            Station station = graph.stationOf(id);
+            stationIds.putIfAbsent(station.getLine().getNumber() + ";" + station.getName(), id);
+        }
+        this.finders = ThreadLocal.withInitial(() -> new RouteFinder(graph, costs));
+    }
+
+    // Оценивает все пары входного файла на пуле из threads потоков и пишет результат в output
+    public Stats evaluate(Path input, Path output, int threads) throws IOException {
+        long start = System.nanoTime();
+        Chunk chunk = new Chunk(chunkSize);
+        long pairs = 0;
+        long searches = 0;
+        long unknown = 0;
+        long unreachable = 0;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = new BufferedWriter(
+                     Files.newBufferedWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            while (chunk.read(reader, this)) {
+                searches += chunk.group();
+                pool.invoke(new GroupTask(chunk, 0, chunk.groupCount));
+                chunk.write(writer, graph);
+                pairs += chunk.size;
+                unknown += chunk.unknown;
+                unreachable += chunk.unreachable;
+                rootLogger.info("Оценено пар: {}", pairs);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+        Stats stats = new Stats(pairs, searches, unknown, unreachable, elapsed / 1_000_000);
+        rootLogger.info("Пакетная оценка завершена: {} пар, {} поисков, {} неизвестных станций, {} недостижимых, " +
+                        "{} мс, {} пар/с", pairs, searches, unknown, unreachable, stats.getMillis(),
+                String.format("%.0f", stats.pairsPerSecond()));
+        return stats;
+    }
+
+    //==================================================================================================================
+
+    private int stationId(String row, int from, int to) {
+        Integer id = stationIds.get(row.substring(from, to));
+        return id == null ? -1 : id;
+    }
+
+    // Итоги пакета
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final long pairs;
+        private final long searches;
+        private final long unknown;
+        private final long unreachable;
+        private final long millis;
+
+        public double pairsPerSecond() {
+            return millis == 0 ? pairs * 1000.0 : pairs * 1000.0 / millis;
+        }
+    }
+
+    // Порция строк: станции пар, результаты и порядок обработки по станциям отправления
+    private static final class Chunk {
+        private final int[] origins;
+        private final int[] destinations;
+        private final int[] times;
+        private final int[] transfers;
+        private final long[] order;                 // (отправление << 32) | номер строки, отсортировано
+        private final int[] groupStarts;            // начала групп в order
+        private final Map<Integer, String> rawRows = new HashMap<>();   // строки с неизвестными станциями
+        private int size;
+        private int groupCount;
+        private long unknown;
+        private long unreachable;
+
+        Chunk(int capacity) {
+            origins = new int[capacity];
+            destinations = new int[capacity];
+            times = new int[capacity];
+            transfers = new int[capacity];
+            order = new long[capacity];
+            groupStarts = new int[capacity + 1];
+        }
+
+        boolean read(BufferedReader reader, BatchEvaluator evaluator) throws IOException {
+            size = 0;
+            unknown = 0;
+            unreachable = 0;
+            rawRows.clear();
+            String row;
+            // readLine() отрезает и "\n", и "\r\n", поэтому файлы из Windows читаются так же
+            while (size < origins.length && (row = reader.readLine()) != null) {
+                if (row.isEmpty() || row.startsWith("#")) continue;
+                int first = row.indexOf(';');
+                int second = first < 0 ? -1 : row.indexOf(';', first + 1);
+                int third = second < 0 ? -1 : row.indexOf(';', second + 1);
+                int fourth = third < 0 ? -1 : row.indexOf(';', third + 1);
+                if (third < 0) {
+                    errorLogger.error("Строка пропущена, нужно 4 столбца: {}", row);
+                    continue;
+                }
+                int end = fourth < 0 ? row.length() : fourth;
+                origins[size] = evaluator.stationId(row, 0, second);
+                destinations[size] = evaluator.stationId(row, second + 1, end);
+                if (origins[size] < 0 || destinations[size] < 0) {
+                    rawRows.put(size, row.substring(0, end));
+                    unknown++;
+                }
+                size++;
+            }
+            return size > 0;
+        }
+
+        // Сортирует строки по станции отправления и возвращает число групп (= число поисков)
+        int group() {
+            int known = 0;
+            for (int i = 0; i < size; i++) {
+                if (origins[i] < 0 || destinations[i] < 0) {
+                    times[i] = RouteFinder.UNREACHABLE;
+                    transfers[i] = RouteFinder.UNREACHABLE;
+                } else {
+                    order[known++] = ((long) origins[i] << 32) | i;
+                }
+            }
+            Arrays.parallelSort(order, 0, known);
+            groupCount = 0;
+            for (int i = 0; i < known; i++) {
+                if (i == 0 || (order[i] >>> 32) != (order[i - 1] >>> 32)) {
+                    groupStarts[groupCount++] = i;
+                }
+            }
+            groupStarts[groupCount] = known;
+            return groupCount;
+        }
+
+        void write(Writer writer, RouteGraph graph) throws IOException {
+            for (int i = 0; i < size; i++) {
+                String raw = rawRows.get(i);
+                if (raw != null) {
+                    writer.write(raw);
+                } else {
+                    writeStation(writer, graph.stationOf(origins[i]));
+                    writer.write(';');
+                    writeStation(writer, graph.stationOf(destinations[i]));
+                    if (times[i] == RouteFinder.UNREACHABLE) unreachable++;
+                }
+                writer.write(';');
+                writer.write(Integer.toString(times[i]));
+                writer.write(';');
+                writer.write(Integer.toString(transfers[i]));
+                writer.write('\n');
+            }
+        }
+
+        private static void writeStation(Writer writer, Station station) throws IOException {
+            writer.write(station.getLine().getNumber());
+            writer.write(';');
+            writer.write(station.getName());
+        }
+    }
+
+    // Диапазон групп [from, to): делится пополам, пока групп не станет мало
+    private final class GroupTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk chunk;
+        private final int from;
+        private final int to;
+
+        GroupTask(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GROUPS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GroupTask(chunk, from, middle), new GroupTask(chunk, middle, to));
+                return;
+            }
+            RouteFinder finder = finders.get();
+            for (int group = from; group < to; group++) {
+                int first = chunk.groupStarts[group];
+                int last = chunk.groupStarts[group + 1];
+                int origin = (int) (chunk.order[first] >>> 32);
+                finder.searchAll(origin, departure);
+                for (int i = first; i < last; i++) {
+                    int row = (int) chunk.order[i];
+                    int destination = chunk.destinations[row];
+                    // Поездки нет - ожидание поезда на станции отправления не считается
+                    chunk.times[row] = destination == origin ? 0 : finder.distance(destination);
+                    chunk.transfers[row] = finder.transfersTo(destination);
+                }
+            }
+        }
+    }
+}
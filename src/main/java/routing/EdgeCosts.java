@@ -0,0 +1,18 @@
+package routing;
+
+// Стоимость рёбер RouteGraph. time - момент, когда путь дошёл до станции from
+// (секунды от полуночи для расписаний TravelTimes); постоянные стоимости его не используют.
+// Для корректного поиска стоимость не должна позволять "приехать раньше, выехав позже"
+@FunctionalInterface
+public interface EdgeCosts {
+    int cost(int from, int edge, int time);
+
+    // Ожидание поезда на станции отправления маршрута
+    default int boarding(int station, int time) {
+        return 0;
+    }
+
+    static EdgeCosts fixed(RouteGraph graph, int rideCost, int transferCost) {
+        return (from, edge, time) -> graph.isTransfer(edge) ? transferCost : rideCost;
+    }
+}
@@ -0,0 +1,9 @@
+package routing;
+
+// Оценка снизу стоимости пути от станции до цели для A*. Должна быть допустимой (не завышать стоимость)
+@FunctionalInterface
+public interface Heuristic {
+    Heuristic NONE = (station, target) -> 0;   // без эвристики A* вырождается в Дейкстру
+
+    int estimate(int station, int target);
+}
@@ -0,0 +1,15 @@
+package routing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import metro.Station;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class Route {
+    private List<Station> stations;
+    private int cost;
+    private int transfers;
+}
@@ -0,0 +1,265 @@
+package routing;
+
+import metro.Station;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Поиск кратчайшего пути (Дейкстра / A*) по RouteGraph со стоимостью рёбер EdgeCosts - постоянной
+// (проезд и пересадка) или зависящей от времени суток (TravelTimes).
+// Все рабочие массивы выделяются один раз, поэтому сам поиск не создаёт объектов.
+// Станции и рёбра можно временно исключить из поиска (blockStation/blockEdge) - так ищутся альтернативы.
+// Экземпляр не потокобезопасен: на каждый поток - свой RouteFinder.
+public final class RouteFinder {
+    public static final int UNREACHABLE = -1;
+
+    private final RouteGraph graph;
+    private final EdgeCosts costs;
+
+    private final int[] dist;           // стоимость от источника
+    private final int[] prev;           // предыдущая станция пути
+    private final int[] lineChanges;    // число смен линии на пути, считается при релаксации
+    private final int[] reached;        // поколение, в котором станция получила dist
+    private final int[] settled;        // поколение, в котором станция закрыта
+    private int generation;
+
+    // Индексированная двоичная куча по приоритету (dist + эвристика)
+    private final int[] heap;
+    private final int[] heapPos;
+    private final int[] priority;
+    private int heapSize;
+
+    // Исключённые станции и рёбра: отметка равна blockGeneration
+    private final int[] blockedStations;
+    private final int[] blockedEdges;
+    private int blockGeneration = 1;
+
+    private int lastTarget = -1;
+
+    public RouteFinder(RouteGraph graph, int rideCost, int transferCost) {
+        this(graph, EdgeCosts.fixed(graph, rideCost, transferCost));
+    }
+
+    public RouteFinder(RouteGraph graph, EdgeCosts costs) {
+        this.graph = graph;
+        this.costs = costs;
+        int n = graph.size();
+        dist = new int[n];
+        prev = new int[n];
+        lineChanges = new int[n];
+        reached = new int[n];
+        settled = new int[n];
+        heap = new int[n];
+        heapPos = new int[n];
+        priority = new int[n];
+        blockedStations = new int[n];
+        blockedEdges = new int[graph.edgeCount()];
+        Arrays.fill(heapPos, -1);
+    }
+
+    public RouteGraph getGraph() {
+        return graph;
+    }
+
+    // Стоимость кратчайшего пути или UNREACHABLE
+    public int search(int source, int target) {
+        return search(source, target, Heuristic.NONE);
+    }
+
+    public int search(int source, int target, Heuristic heuristic) {
+        return search(source, target, 0, heuristic);
+    }
+
+    // Поиск с отправлением в момент departure (секунды от полуночи), стоимость включает ожидание поезда
+    public int search(int source, int target, int departure, Heuristic heuristic) {
+        return search(source, target, departure, costs.boarding(source, departure), heuristic);
+    }
+
+    // Продолжение пути из source, до которого уже потрачено initialCost от отправления в departure
+    int search(int source, int target, int departure, int initialCost, Heuristic heuristic) {
+        nextGeneration();
+        lastTarget = target;
+        relax(source, initialCost, -1, initialCost + heuristic.estimate(source, target));
+        while (heapSize > 0) {
+            int v = pop();
+            if (v == target) {
+                clearHeap();
+                return dist[v];
+            }
+            settled[v] = generation;
+            int base = dist[v];
+            for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                int u = graph.edgeTarget(e);
+                if (settled[u] == generation || blockedEdges[e] == blockGeneration
+                        || blockedStations[u] == blockGeneration) continue;
+                int cost = base + costs.cost(v, e, departure + base);
+                if (reached[u] != generation || cost < dist[u]) {
+                    relax(u, cost, v, cost + heuristic.estimate(u, target));
+                }
+            }
+        }
+        return UNREACHABLE;
+    }
+
+    public void blockStation(int station) {
+        blockedStations[station] = blockGeneration;
+    }
+
+    public void blockEdge(int edge) {
+        blockedEdges[edge] = blockGeneration;
+    }
+
+    // Снимает все исключения за O(1)
+    public void clearBlocks() {
+        if (++blockGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(blockedStations, 0);
+            Arrays.fill(blockedEdges, 0);
+            blockGeneration = 1;
+        }
+    }
+
+    // Поиск от source до всех станций; результат - distance(station)
+    public void searchAll(int source) {
+        search(source, -1, Heuristic.NONE);
+    }
+
+    public void searchAll(int source, int departure) {
+        search(source, -1, departure, Heuristic.NONE);
+    }
+
+    // Стоимость до станции по результату последнего поиска или UNREACHABLE
+    public int distance(int station) {
+        return reached[station] == generation && (settled[station] == generation || station == lastTarget) ?
+                dist[station] : UNREACHABLE;
+    }
+
+    // Число смен линии на пути до станции по результату последнего поиска или UNREACHABLE
+    public int transfersTo(int station) {
+        if (distance(station) == UNREACHABLE) return UNREACHABLE;
+        return lineChanges[station];
+    }
+
+    // Записывает станции последнего найденного пути в buffer и возвращает их количество
+    public int copyPath(int[] buffer) {
+        return copyPath(buffer, null);
+    }
+
+    // То же, и стоимость от отправления до каждой станции пути в costs (если не null)
+    public int copyPath(int[] buffer, int[] costs) {
+        if (lastTarget < 0 || reached[lastTarget] != generation) return 0;
+        int length = 0;
+        for (int v = lastTarget; v != -1; v = prev[v]) {
+            length++;
+        }
+        int i = length;
+        for (int v = lastTarget; v != -1; v = prev[v]) {
+            buffer[--i] = v;
+            if (costs != null) costs[i] = dist[v];
+        }
+        return length;
+    }
+
+    public Route findRoute(Station from, Station to) {
+        int source = graph.idOf(from);
+        int target = graph.idOf(to);
+        if (source < 0 || target < 0) return null;
+        int cost = search(source, target);
+        if (cost == UNREACHABLE) return null;
+        int[] path = new int[graph.size()];
+        int length = copyPath(path);
+        return toRoute(graph, path, length, cost);
+    }
+
+    static Route toRoute(RouteGraph graph, int[] path, int length, int cost) {
+        List<Station> stations = new ArrayList<>(length);
+        int transfers = 0;
+        for (int i = 0; i < length; i++) {
+            Station station = graph.stationOf(path[i]);
+            if (i > 0 && !station.getLine().equals(stations.get(i - 1).getLine())) {
+                transfers++;
+            }
+            stations.add(station);
+        }
+        return new Route(stations, cost, transfers);
+    }
+
+    //==================================================================================================================
+
+    private void nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            generation = 1;
+        }
+    }
+
+    private void relax(int v, int cost, int from, int key) {
+        dist[v] = cost;
+        prev[v] = from;
+        lineChanges[v] = from < 0 ? 0 : lineChanges[from] + (graph.lineOf(v) != graph.lineOf(from) ? 1 : 0);
+        reached[v] = generation;
+        priority[v] = key;
+        if (heapPos[v] < 0) {
+            heap[heapSize] = v;
+            heapPos[v] = heapSize;
+            heapSize++;
+        }
+        siftUp(heapPos[v]);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapPos[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            int last = heap[heapSize];
+            heap[0] = last;
+            heapPos[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void clearHeap() {
+        for (int i = 0; i < heapSize; i++) {
+            heapPos[heap[i]] = -1;
+        }
+        heapSize = 0;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        int key = priority[v];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (priority[p] <= key) break;
+            heap[i] = p;
+            heapPos[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapPos[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        int key = priority[v];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < heapSize && priority[heap[right]] < priority[heap[child]]) {
+                child = right;
+            }
+            int c = heap[child];
+            if (key <= priority[c]) break;
+            heap[i] = c;
+            heapPos[c] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapPos[v] = i;
+    }
+}
@@ -0,0 +1,163 @@
+package routing;
+
+import metro.Line;
+import metro.MetroView;
+import metro.Station;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+
+// Неизменяемый граф метро в формате CSR (compressed sparse row): станции - целые id,
+// рёбра - соседние станции линии (проезд) и пересадки из Metro.getConnections()
+public final class RouteGraph {
+    private final Station[] stations;           // id -> станция
+    private final Map<Station, Integer> ids;    // станция -> id
+    private final int[] offsets;                // рёбра станции v: [offsets[v], offsets[v + 1])
+    private final int[] targets;                // конец ребра
+    private final boolean[] transfers;          // true - пересадка, false - проезд по линии
+    private final int[] lines;                  // id -> порядковый номер линии станции
+
+    private RouteGraph(Station[] stations, Map<Station, Integer> ids,
+                       int[] offsets, int[] targets, boolean[] transfers) {
+        this.stations = stations;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.transfers = transfers;
+        this.lines = new int[stations.length];
+        Map<Line, Integer> lineIds = new HashMap<>();
+        for (int i = 0; i < stations.length; i++) {
+            lines[i] = lineIds.computeIfAbsent(stations[i].getLine(), line -> lineIds.size());
+        }
+    }
+
+    public static RouteGraph compile(MetroView metro) {
+        // Нумеруем станции в порядке линий и станций на линии
+        Map<Station, Integer> ids = new HashMap<>();
+        for (Line line : metro.getLines()) {
+            for (Station station : line.getStations()) {
+                ids.putIfAbsent(station, ids.size());
+            }
+        }
+        for (Station station : metro.getStations()) {
+            ids.putIfAbsent(station, ids.size());
+        }
+        Station[] stations = new Station[ids.size()];
+        ids.forEach((station, id) -> stations[id] = station);
+
+        // Собираем рёбра как пары (from, to) с признаком пересадки
+        EdgeList edges = new EdgeList();
+        for (Line line : metro.getLines()) {
+            Station previous = null;
+            for (Station station : line.getStations()) {
+                if (previous != null && !previous.equals(station)) {
+                    int from = ids.get(previous);
+                    int to = ids.get(station);
+                    edges.add(from, to, false);
+                    edges.add(to, from, false);
+                }
+                previous = station;
+            }
+        }
+        for (Map.Entry<Station, ? extends NavigableSet<Station>> connection : metro.getConnections().entrySet()) {
+            Integer from = ids.get(connection.getKey());
+            if (from == null) continue;
+            for (Station station : connection.getValue()) {
+                Integer to = ids.get(station);
+                if (to == null || to.equals(from)) continue;
+                edges.add(from, to, true);
+                edges.add(to, from, true);
+            }
+        }
+        return edges.toGraph(stations, ids);
+    }
+
+    public int size() {
+        return stations.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    // Возвращает id станции или -1, если станции нет в графе
+    public int idOf(Station station) {
+        Integer id = ids.get(station);
+        return id == null ? -1 : id;
+    }
+
+    public Station stationOf(int id) {
+        return stations[id];
+    }
+
+    // Порядковый номер линии станции - для быстрого сравнения линий без объектов Line
+    public int lineOf(int id) {
+        return lines[id];
+    }
+
+    public int edgeStart(int station) {
+        return offsets[station];
+    }
+
+    public int edgeEnd(int station) {
+        return offsets[station + 1];
+    }
+
+    public int edgeTarget(int edge) {
+        return targets[edge];
+    }
+
+    public boolean isTransfer(int edge) {
+        return transfers[edge];
+    }
+
+    // Ребро from -> to или -1, если станции не соседние
+    public int edgeBetween(int from, int to) {
+        for (int e = offsets[from], end = offsets[from + 1]; e < end; e++) {
+            if (targets[e] == to) return e;
+        }
+        return -1;
+    }
+
+    //==================================================================================================================
+
+    // Временный список рёбер, который сортируется и уплотняется в CSR без дубликатов
+    private static final class EdgeList {
+        private long[] packed = new long[64];
+        private int size;
+
+        void add(int from, int to, boolean transfer) {
+            if (size == packed.length) {
+                packed = Arrays.copyOf(packed, size * 2);
+            }
+            packed[size++] = ((long) from << 32) | ((long) to << 1) | (transfer ? 1 : 0);
+        }
+
+        RouteGraph toGraph(Station[] stations, Map<Station, Integer> ids) {
+            long[] sorted = Arrays.copyOf(packed, size);
+            Arrays.sort(sorted);
+            int[] offsets = new int[stations.length + 1];
+            int[] targets = new int[sorted.length];
+            boolean[] transfers = new boolean[sorted.length];
+            int count = 0;
+            long previousKey = -1;
+            for (long edge : sorted) {
+                long key = edge >>> 1;                  // from + to без признака пересадки
+                if (key == previousKey) continue;       // проезд и пересадка между одной парой - оставляем проезд
+                previousKey = key;
+                int from = (int) (edge >>> 32);
+                targets[count] = (int) ((edge & 0xFFFFFFFFL) >>> 1);
+                transfers[count] = (edge & 1) == 1;
+                offsets[from + 1]++;
+                count++;
+            }
+            for (int i = 0; i < stations.length; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            return new RouteGraph(stations, ids, offsets,
+                    Arrays.copyOf(targets, count), Arrays.copyOf(transfers, count));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package routing;
+
+import metro.MetroView;
+import metro.Station;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Потокобезопасный поиск альтернативных маршрутов с учётом времени суток.
+// У каждого потока свой AlternativeRoutes (и RouteFinder), поэтому запросы выполняются параллельно без блокировок
+public final class RoutePlanner {
+    private final RouteGraph graph;
+    private final ThreadLocal<AlternativeRoutes> workers;
+
+    public RoutePlanner(RouteGraph graph, EdgeCosts costs) {
+        this.graph = graph;
+        this.workers = ThreadLocal.withInitial(() -> new AlternativeRoutes(graph, costs));
+    }
+
+    public static RoutePlanner create(MetroView metro, TravelTimes times) {
+        RouteGraph graph = RouteGraph.compile(metro);
+        return new RoutePlanner(graph, times.compile(graph));
+    }
+
+    public RouteGraph getGraph() {
+        return graph;
+    }
+
+    // До k различных маршрутов по возрастанию времени в пути (секунды, включая ожидание поездов)
+    public List<Route> alternatives(Station from, Station to, int k, LocalTime departure) {
+        int source = graph.idOf(from);
+        int target = graph.idOf(to);
+        if (source < 0 || target < 0) return Collections.emptyList();
+        List<AlternativeRoutes.Path> paths = workers.get().find(source, target, k, departure.toSecondOfDay());
+        List<Route> routes = new ArrayList<>(paths.size());
+        for (AlternativeRoutes.Path path : paths) {
+            routes.add(RouteFinder.toRoute(graph, path.getNodes(), path.length(), path.getCost()));
+        }
+        return routes;
+    }
+
+    public List<Route> alternatives(RouteQuery query, int k) {
+        return alternatives(query.getFrom(), query.getTo(), k, query.getDeparture());
+    }
+
+    // Пакет запросов на всех ядрах; результат - в порядке запросов
+    public List<List<Route>> alternatives(List<RouteQuery> queries, int k) {
+        return queries.parallelStream()
+                .map(query -> alternatives(query, k))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,16 @@
+package routing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import metro.Station;
+
+import java.time.LocalTime;
+
+// Запрос маршрута: откуда, куда и время отправления
+@Getter
+@AllArgsConstructor
+public class RouteQuery {
+    private final Station from;
+    private final Station to;
+    private final LocalTime departure;
+}
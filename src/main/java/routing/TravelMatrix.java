@@ -0,0 +1,166 @@
+package routing;
+
+import metro.Station;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+// Предрасчитанные матрицы "каждая станция с каждой": время в пути (unsigned short) и минимальное
+// число пересадок (unsigned byte), индекс - from * size + to. Ответ на запрос пары - одно чтение массива.
+public final class TravelMatrix {
+    private static final Logger rootLogger = LogManager.getRootLogger();
+
+    public static final int UNREACHABLE = RouteFinder.UNREACHABLE;
+    private static final int MAGIC = 0x4D545258;        // "MTRX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * 4;
+    private static final int NO_TIME = 0xFFFF;
+    private static final int NO_TRANSFERS = 0xFF;
+
+    private final RouteGraph graph;
+    private final int size;
+    private final int rideCost;
+    private final int transferCost;
+    private final short[] times;
+    private final byte[] transfers;
+
+    private TravelMatrix(RouteGraph graph, int rideCost, int transferCost, short[] times, byte[] transfers) {
+        this.graph = graph;
+        this.size = graph.size();
+        this.rideCost = rideCost;
+        this.transferCost = transferCost;
+        this.times = times;
+        this.transfers = transfers;
+    }
+
+    // Один поиск от каждой станции, источники обрабатываются параллельно на всех ядрах
+    public static TravelMatrix compute(RouteGraph graph, int rideCost, int transferCost) {
+        long start = System.currentTimeMillis();
+        int n = graph.size();
+        short[] times = new short[n * n];
+        byte[] transfers = new byte[n * n];
+        ThreadLocal<RouteFinder> timeFinders = ThreadLocal.withInitial(() ->
+                new RouteFinder(graph, rideCost, transferCost));
+        ThreadLocal<RouteFinder> transferFinders = ThreadLocal.withInitial(() ->
+                new RouteFinder(graph, 0, 1));          // стоимость пути = число пересадок
+        IntStream.range(0, n).parallel().forEach(source -> {
+            RouteFinder timeFinder = timeFinders.get();
+            RouteFinder transferFinder = transferFinders.get();
+            timeFinder.searchAll(source);
+            transferFinder.searchAll(source);
+            int row = source * n;
+            for (int target = 0; target < n; target++) {
+                int time = timeFinder.distance(target);
+                int count = transferFinder.distance(target);
+                if (time >= NO_TIME || count >= NO_TRANSFERS) {
+                    throw new IllegalStateException("Значение не помещается в матрицу: " + time + ", " + count);
+                }
+                times[row + target] = (short) (time == UNREACHABLE ? NO_TIME : time);
+                transfers[row + target] = (byte) (count == UNREACHABLE ? NO_TRANSFERS : count);
+            }
+        });
+        rootLogger.info("Матрица времени в пути построена: {} станций, {} байт, {} мс",
+                n, times.length * 2L + transfers.length, System.currentTimeMillis() - start);
+        return new TravelMatrix(graph, rideCost, transferCost, times, transfers);
+    }
+
+    public RouteGraph getGraph() {
+        return graph;
+    }
+
+    public int getRideCost() {
+        return rideCost;
+    }
+
+    public int getTransferCost() {
+        return transferCost;
+    }
+
+    // Время в пути между станциями (по id RouteGraph) или UNREACHABLE
+    public int travelTime(int from, int to) {
+        int time = times[from * size + to] & 0xFFFF;
+        return time == NO_TIME ? UNREACHABLE : time;
+    }
+
+    // Минимальное число пересадок или UNREACHABLE
+    public int transfers(int from, int to) {
+        int count = transfers[from * size + to] & 0xFF;
+        return count == NO_TRANSFERS ? UNREACHABLE : count;
+    }
+
+    public int travelTime(Station from, Station to) {
+        int source = graph.idOf(from);
+        int target = graph.idOf(to);
+        return source < 0 || target < 0 ? UNREACHABLE : travelTime(source, target);
+    }
+
+    public int transfers(Station from, Station to) {
+        int source = graph.idOf(from);
+        int target = graph.idOf(to);
+        return source < 0 || target < 0 ? UNREACHABLE : transfers(source, target);
+    }
+
+    // Точная эвристика для A* с теми же стоимостями проезда и пересадки
+    public Heuristic heuristic() {
+        return (station, target) -> {
+            int time = travelTime(station, target);
+            return time == UNREACHABLE ? 0 : time;
+        };
+    }
+
+    // Формат: MAGIC, VERSION, size, rideCost, transferCost, затем times и transfers как есть
+    public void save(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + times.length * 2 + transfers.length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(rideCost).putInt(transferCost);
+        buffer.asShortBuffer().put(times);
+        buffer.position(buffer.position() + times.length * 2);
+        buffer.put(transfers);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // Загрузка матрицы, сохранённой для того же графа (станции нумеруются одинаково при одинаковом Metro)
+    public static TravelMatrix load(Path file, RouteGraph graph) throws IOException {
+        ByteBuffer buffer;
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Файл матрицы " + file + " обрезан: нет заголовка");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Файл " + file + " не является матрицей времени в пути");
+        }
+        int n = buffer.getInt();
+        if (n != graph.size()) {
+            throw new IOException("Матрица построена для " + n + " станций, в графе " + graph.size());
+        }
+        // Заголовок, n * n времён (short) и n * n пересадок (byte) - иначе файл обрезан или дописан
+        long expected = HEADER_BYTES + 3L * n * n;
+        if (size != expected) {
+            throw new IOException("Файл матрицы " + file + " обрезан или повреждён: " + size
+                    + " байт, ожидалось " + expected);
+        }
+        int rideCost = buffer.getInt();
+        int transferCost = buffer.getInt();
+        short[] times = new short[n * n];
+        byte[] transfers = new byte[n * n];
+        buffer.asShortBuffer().get(times);
+        buffer.position(buffer.position() + times.length * 2);
+        buffer.get(transfers);
+        return new TravelMatrix(graph, rideCost, transferCost, times, transfers);
+    }
+}
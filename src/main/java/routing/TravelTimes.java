@@ -0,0 +1,180 @@
+package routing;
+
+import metro.Line;
+import metro.Station;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Время в пути в секундах из файла (CSV, разделитель ';', строки с '#' - комментарии):
+//   ride;<линия>;<станция>;<станция>;<секунды>                 - перегон между соседними станциями (в обе стороны)
+//   walk;<линия>;<станция>;<линия>;<станция>;<секунды>         - пешая пересадка (в обе стороны)
+//   headway;<линия>;<с ЧЧ:ММ>;<до ЧЧ:ММ>;<секунды>             - интервал движения линии в этот период
+//   default;ride|walk;<секунды>                                - значение для перегонов и пересадок без строки
+// Если у линии есть интервалы, вне их линия закрыта, а ожидание поезда - половина интервала
+public final class TravelTimes {
+    private static final Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    public static final int DEFAULT_RIDE_SECONDS = 120;
+    public static final int DEFAULT_WALK_SECONDS = 240;
+    private static final int DAY = 24 * 60 * 60;
+
+    private final Map<String, Integer> rides = new HashMap<>();
+    private final Map<String, Integer> walks = new HashMap<>();
+    private final Map<String, List<int[]>> headways = new HashMap<>();     // номер линии -> {с, до, интервал}
+    private int defaultRide = DEFAULT_RIDE_SECONDS;
+    private int defaultWalk = DEFAULT_WALK_SECONDS;
+
+    private TravelTimes() {
+    }
+
+    // Без файла: все перегоны и пересадки - значения по умолчанию, линии открыты всегда
+    public static TravelTimes defaults() {
+        return new TravelTimes();
+    }
+
+    public static TravelTimes load(Path file) throws IOException {
+        TravelTimes times = new TravelTimes();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String row;
+            int number = 0;
+            while ((row = reader.readLine()) != null) {
+                number++;
+                row = row.trim();
+                if (row.isEmpty() || row.startsWith("#")) continue;
+                try {
+                    times.addRow(row.split(";"));
+                } catch (RuntimeException ex) {
+                    errorLogger.error("Строка {} файла {} пропущена: {}", number, file, ex.getMessage());
+                }
+            }
+        }
+        return times;
+    }
+
+    public int rideSeconds(Station from, Station to) {
+        return rides.getOrDefault(key(from.getLine().getNumber(), from.getName(), to.getName()), defaultRide);
+    }
+
+    public int walkSeconds(Station from, Station to) {
+        return walks.getOrDefault(key(from.getLine().getNumber(), from.getName(),
+                to.getLine().getNumber(), to.getName()), defaultWalk);
+    }
+
+    // Среднее ожидание поезда линии, если прийти на платформу в момент time (секунды от полуночи)
+    public int waitSeconds(Line line, int time) {
+        return expectedWait(windows(line), time);
+    }
+
+    // Стоимости рёбер графа в секундах: перегон, пересадка плюс ожидание поезда линии, на которую переходим
+    public EdgeCosts compile(RouteGraph graph) {
+        int[] seconds = new int[graph.edgeCount()];
+        int[][][] stationWindows = new int[graph.size()][][];
+        Map<Line, int[][]> lineWindows = new HashMap<>();
+        for (int v = 0; v < graph.size(); v++) {
+            Station from = graph.stationOf(v);
+            stationWindows[v] = lineWindows.computeIfAbsent(from.getLine(), this::windows);
+            for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                Station to = graph.stationOf(graph.edgeTarget(e));
+                seconds[e] = graph.isTransfer(e) ? walkSeconds(from, to) : rideSeconds(from, to);
+            }
+        }
+        return new EdgeCosts() {
+            @Override
+            public int cost(int from, int edge, int time) {
+                int walk = seconds[edge];
+                if (!graph.isTransfer(edge)) return walk;
+                return walk + expectedWait(stationWindows[graph.edgeTarget(edge)], time + walk);
+            }
+
+            @Override
+            public int boarding(int station, int time) {
+                return expectedWait(stationWindows[station], time);
+            }
+        };
+    }
+
+    //==================================================================================================================
+
+    private void addRow(String[] cells) {
+        switch (cells[0].trim()) {
+            case "ride":
+                int ride = seconds(cells[4]);
+                rides.put(key(cells[1].trim(), cells[2].trim(), cells[3].trim()), ride);
+                rides.put(key(cells[1].trim(), cells[3].trim(), cells[2].trim()), ride);
+                break;
+            case "walk":
+                int walk = seconds(cells[5]);
+                walks.put(key(cells[1].trim(), cells[2].trim(), cells[3].trim(), cells[4].trim()), walk);
+                walks.put(key(cells[3].trim(), cells[4].trim(), cells[1].trim(), cells[2].trim()), walk);
+                break;
+            case "headway":
+                int from = LocalTime.parse(cells[2].trim()).toSecondOfDay();
+                int to = LocalTime.parse(cells[3].trim()).toSecondOfDay();
+                int headway = seconds(cells[4]);
+                List<int[]> windows = headways.computeIfAbsent(cells[1].trim(), line -> new ArrayList<>());
+                if (to > from) {
+                    windows.add(new int[]{from, to, headway});
+                } else {                                        // период через полночь
+                    windows.add(new int[]{from, DAY, headway});
+                    windows.add(new int[]{0, to, headway});
+                }
+                windows.sort((a, b) -> Integer.compare(a[0], b[0]));
+                break;
+            case "default":
+                if ("walk".equals(cells[1].trim())) {
+                    defaultWalk = seconds(cells[2]);
+                } else {
+                    defaultRide = seconds(cells[2]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("неизвестный тип строки " + cells[0]);
+        }
+    }
+
+    private static int seconds(String cell) {
+        int seconds = Integer.parseInt(cell.trim());
+        if (seconds < 0) throw new IllegalArgumentException("отрицательное время " + seconds);
+        return seconds;
+    }
+
+    private int[][] windows(Line line) {
+        List<int[]> windows = headways.get(line.getNumber());
+        return windows == null ? null : windows.toArray(new int[0][]);
+    }
+
+    // Ожидание - меньшее из "поезд через полинтервала" в текущем периоде и "дождаться следующего периода",
+    // поэтому позднее прибытие на платформу никогда не даёт более раннего отправления
+    private static int expectedWait(int[][] windows, int time) {
+        if (windows == null) return 0;
+        int t = time % DAY;
+        int best = Integer.MAX_VALUE;
+        for (int[] window : windows) {
+            if (window[0] <= t && t < window[1]) {
+                best = Math.min(best, window[2] / 2);
+            } else if (window[0] > t) {
+                best = Math.min(best, window[0] - t + window[2] / 2);
+                break;                                      // периоды отсортированы - дальше только позже
+            }
+        }
+        if (best == Integer.MAX_VALUE) {                    // после последнего периода - ждём первый завтра
+            best = windows[0][0] + DAY - t + windows[0][2] / 2;
+        }
+        return best;
+    }
+
+    private static String key(String... parts) {
+        return String.join(";", parts);
+    }
+}
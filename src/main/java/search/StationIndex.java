@@ -0,0 +1,356 @@
+package search;
+
+import metro.Line;
+import metro.MetroView;
+import metro.Station;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+// Поисковый индекс станций для автодополнения и разбора подписей Википедии.
+// Имена нормализуются (регистр, ё/е, дефисы и тире как пробелы). Префиксный поиск - по дереву (trie)
+// от начала имени и от начала каждого слова; поиск с опечатками - кандидаты по общим триграммам,
+// затем ограниченное расстояние Левенштейна до начала имени или слова.
+// Индекс неизменяем после построения и может использоваться из нескольких потоков
+public final class StationIndex {
+    private static final int[] NO_ENTRIES = new int[0];
+
+    private final Station[] stations;           // id -> станция; id - ранг (короче и по алфавиту - раньше)
+    private final String[] names;               // id -> нормализованное имя
+    private final int[][] wordStarts;           // id -> позиции начала слов в names[id]
+    private final String[] lineNames;           // id -> нормализованное имя линии станции
+    private final Node root = new Node();
+    private final Map<Long, int[]> trigrams;    // триграмма -> id станций
+
+    private StationIndex(Collection<Station> source) {
+        List<Station> sorted = new ArrayList<>(source);
+        Map<Station, String> normalized = new HashMap<>();
+        sorted.forEach(station -> normalized.put(station, normalize(station.getName())));
+        sorted.sort(Comparator.<Station>comparingInt(station -> normalized.get(station).length())
+                .thenComparing(normalized::get)
+                .thenComparing(Station::getLine));
+
+        int n = sorted.size();
+        stations = sorted.toArray(new Station[0]);
+        names = new String[n];
+        wordStarts = new int[n][];
+        lineNames = new String[n];
+        Map<Line, String> normalizedLines = new HashMap<>();
+        Map<Long, List<Integer>> postings = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            String name = normalized.get(stations[id]);
+            names[id] = name;
+            wordStarts[id] = wordStarts(name);
+            lineNames[id] = normalizedLines.computeIfAbsent(stations[id].getLine(), line -> normalize(line.getName()));
+            for (int start : wordStarts[id]) {
+                insert(name, start, start == 0 ? id : n + id, id);
+            }
+            int current = id;
+            forEachTrigram(name, trigram -> {
+                List<Integer> ids = postings.computeIfAbsent(trigram, key -> new ArrayList<>());
+                if (ids.isEmpty() || ids.get(ids.size() - 1) != current) ids.add(current);
+            });
+        }
+        root.freeze();
+        trigrams = new HashMap<>();
+        postings.forEach((trigram, ids) -> trigrams.put(trigram, ids.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    public static StationIndex build(MetroView metro) {
+        return new StationIndex(metro.getStations());
+    }
+
+    public static StationIndex build(Collection<Station> stations) {
+        return new StationIndex(stations);
+    }
+
+    // Нижний регистр, ё -> е, дефисы и тире -> пробел, кавычки убираются, пробелы схлопываются
+    public static String normalize(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+            if (c == 'ё') c = 'е';
+            if (c == '-' || c == '‐' || c == '‑' || c == '–' || c == '—' || Character.isWhitespace(c)) {
+                if (!space) result.append(' ');
+                space = true;
+                continue;
+            }
+            if (c == '"' || c == '«' || c == '»' || c == '„' || c == '“' || c == '”') continue;
+            result.append(c);
+            space = false;
+        }
+        int length = result.length();
+        if (length > 0 && result.charAt(length - 1) == ' ') result.setLength(length - 1);
+        return result.toString();
+    }
+
+    public int size() {
+        return stations.length;
+    }
+
+    // Автодополнение: точное совпадение и префиксы, затем (если мало) совпадения с опечатками
+    public List<StationMatch> search(String query, int limit) {
+        List<StationMatch> result = prefix(query, limit);
+        if (result.size() < limit) {
+            for (StationMatch match : fuzzy(query, defaultDistance(normalize(query)), limit)) {
+                if (result.size() == limit) break;
+                if (!contains(result, match.getStation())) result.add(match);
+            }
+        }
+        return result;
+    }
+
+    // Станции, имя которых или одно из слов имени начинается с запроса. Сначала совпадения с начала имени
+    public List<StationMatch> prefix(String query, int limit) {
+        String q = normalize(query);
+        List<StationMatch> result = new ArrayList<>(Math.min(limit, 16));
+        if (q.isEmpty() || limit <= 0) return result;
+        Node node = root.find(q);
+        if (node == null) return result;
+        int n = stations.length;
+        for (int i = 0; i < node.entries.length && result.size() < limit; i++) {
+            int id = node.entries[i] % n;
+            if (contains(result, stations[id])) continue;
+            StationMatch.Kind kind = names[id].equals(q) ? StationMatch.Kind.EXACT : StationMatch.Kind.PREFIX;
+            result.add(new StationMatch(stations[id], kind, 0));
+        }
+        // Полные совпадения - первыми, остальной порядок сохраняется
+        result.sort(Comparator.comparingInt(match -> match.getKind() == StationMatch.Kind.EXACT ? 0 : 1));
+        return result;
+    }
+
+    // Станции, начало имени или слова которых отличается от запроса не более чем на maxDistance правок
+    public List<StationMatch> fuzzy(String query, int maxDistance, int limit) {
+        String q = normalize(query);
+        List<StationMatch> result = new ArrayList<>();
+        if (q.isEmpty() || limit <= 0) return result;
+        int n = stations.length;
+        int[] shared = new int[n];
+        int[] queryTrigrams = {0};
+        forEachTrigram(q, trigram -> {
+            queryTrigrams[0]++;
+            int[] ids = trigrams.get(trigram);
+            if (ids != null) {
+                for (int id : ids) shared[id]++;
+            }
+        });
+        // Каждая правка портит не больше трёх триграмм запроса (ещё одна - начало слова в середине имени)
+        int required = Math.max(1, queryTrigrams[0] - 3 * maxDistance - 1);
+        int[] previous = new int[q.length() + 1];
+        int[] current = new int[q.length() + 1];
+        List<int[]> found = new ArrayList<>();          // {score, id, distance}
+        for (int id = 0; id < n; id++) {
+            if (shared[id] < required) continue;
+            int best = Integer.MAX_VALUE;
+            int bestWord = 0;
+            for (int w = 0; w < wordStarts[id].length; w++) {
+                int distance = prefixDistance(q, names[id], wordStarts[id][w], maxDistance, previous, current);
+                if (distance < best) {
+                    best = distance;
+                    bestWord = w;
+                }
+            }
+            if (best <= maxDistance) {
+                found.add(new int[]{best * 2 + (bestWord == 0 ? 0 : 1), id, best});
+            }
+        }
+        found.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        for (int i = 0; i < found.size() && result.size() < limit; i++) {
+            int[] match = found.get(i);
+            result.add(new StationMatch(stations[match[1]], StationMatch.Kind.FUZZY, match[2]));
+        }
+        return result;
+    }
+
+    // Станции, имя которых встречается в тексте целыми словами, например в подписи
+    // "Переход на станцию Охотный ряд Сокольнической линии". Ранжируются по близости текста
+    // после имени к имени линии станции (падеж не важен), затем более длинные имена - раньше
+    public List<StationMatch> mentionedIn(String text) {
+        String t = normalize(text);
+        List<int[]> found = new ArrayList<>();          // {distance, -length, id}
+        for (int start = 0; start < t.length(); start++) {
+            if (start > 0 && t.charAt(start - 1) != ' ') continue;
+            Node node = root;
+            for (int end = start; end < t.length() && node != null; end++) {
+                node = node.child(t.charAt(end));
+                if (node == null || node.terminals.length == 0) continue;
+                if (end + 1 < t.length() && t.charAt(end + 1) != ' ') continue;
+                String rest = t.substring(Math.min(end + 2, t.length()));
+                for (int id : node.terminals) {
+                    found.add(new int[]{levenshtein(rest, lineNames[id]), -(end + 1 - start), id});
+                }
+            }
+        }
+        found.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) :
+                a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(a[2], b[2]));
+        List<StationMatch> result = new ArrayList<>(found.size());
+        for (int[] match : found) {
+            if (!contains(result, stations[match[2]])) {
+                result.add(new StationMatch(stations[match[2]], StationMatch.Kind.MENTION, match[0]));
+            }
+        }
+        return result;
+    }
+
+    //==================================================================================================================
+
+    private static int defaultDistance(String query) {
+        return query.length() <= 3 ? 0 : query.length() <= 6 ? 1 : 2;
+    }
+
+    private static boolean contains(List<StationMatch> matches, Station station) {
+        for (StationMatch match : matches) {
+            if (match.getStation().equals(station)) return true;
+        }
+        return false;
+    }
+
+    private static int[] wordStarts(String name) {
+        int count = name.isEmpty() ? 0 : 1;
+        for (int i = 1; i < name.length(); i++) {
+            if (name.charAt(i - 1) == ' ') count++;
+        }
+        int[] starts = new int[count];
+        int k = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (i == 0 || name.charAt(i - 1) == ' ') starts[k++] = i;
+        }
+        return starts;
+    }
+
+    // Слово с позиции start и всё имя после него добавляются в дерево; entry = id для начала имени,
+    // n + id для слова в середине, чтобы при сортировке совпадения с начала имени шли первыми
+    private void insert(String name, int start, int entry, int id) {
+        Node node = root;
+        for (int i = start; i < name.length(); i++) {
+            node = node.childOrCreate(name.charAt(i));
+            node.addEntry(entry);
+        }
+        if (start == 0) {
+            node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+            node.terminals[node.terminals.length - 1] = id;
+        }
+    }
+
+    // Триграммы строки с двумя пробелами в начале: "  к", " ки", "кие", ...
+    private static void forEachTrigram(String text, LongConsumer consumer) {
+        String padded = "  " + text;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            consumer.accept(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+    }
+
+    // Минимальное расстояние Левенштейна от query до префикса name.substring(from);
+    // вычисление прекращается, как только вся строка матрицы больше limit
+    private static int prefixDistance(String query, String name, int from, int limit, int[] previous, int[] current) {
+        int m = query.length();
+        for (int i = 0; i <= m; i++) previous[i] = i;
+        int best = previous[m];
+        for (int j = from; j < name.length(); j++) {
+            current[0] = j - from + 1;
+            int rowMin = current[0];
+            char c = name.charAt(j);
+            for (int i = 1; i <= m; i++) {
+                int cost = query.charAt(i - 1) == c ? 0 : 1;
+                current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                rowMin = Math.min(rowMin, current[i]);
+            }
+            best = Math.min(best, current[m]);
+            if (rowMin > limit) break;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return best;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    // Узел префиксного дерева: дети по символу (отсортированы), все записи поддерева, станции, чьё имя здесь кончается
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int[] entries = NO_ENTRIES;
+        private int entryCount;
+        private int[] terminals = NO_ENTRIES;
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : children[index];
+        }
+
+        Node find(String prefix) {
+            Node node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            return node;
+        }
+
+        Node childOrCreate(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) return children[index];
+            index = -index - 1;
+            Node node = new Node();
+            keys = insertAt(keys, index, key);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = node;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+            return node;
+        }
+
+        void addEntry(int entry) {
+            if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(4, entryCount * 2));
+            }
+            entries[entryCount++] = entry;
+        }
+
+        // Сортировка записей по рангу и удаление повторов; после этого дерево только читается
+        void freeze() {
+            int[] sorted = Arrays.copyOf(entries, entryCount);
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) sorted[unique++] = sorted[i];
+            }
+            entries = Arrays.copyOf(sorted, unique);
+            entryCount = unique;
+            for (Node child : children) {
+                child.freeze();
+            }
+        }
+
+        private static char[] insertAt(char[] array, int index, char value) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, index);
+            grown[index] = value;
+            System.arraycopy(array, index, grown, index + 1, array.length - index);
+            return grown;
+        }
+    }
+}
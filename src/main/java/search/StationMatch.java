@@ -0,0 +1,32 @@
+package search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import metro.Line;
+import metro.Station;
+
+// Найденная станция с её линией. distance - число правок до запроса (для FUZZY)
+// или расстояние от текста после имени станции до имени её линии (для MENTION)
+@Getter
+@AllArgsConstructor
+public class StationMatch {
+    private final Station station;
+    private final Kind kind;
+    private final int distance;
+
+    public Line getLine() {
+        return station.getLine();
+    }
+
+    public enum Kind {
+        EXACT,      // имя совпало с запросом полностью
+        PREFIX,     // имя или одно из его слов начинается с запроса
+        FUZZY,      // начало имени или слова отличается от запроса не более чем на distance правок
+        MENTION     // имя станции встречается в тексте (подпись пересадки)
+    }
+
+    @Override
+    public String toString() {
+        return station.getName() + " (" + getLine().getName() + ", " + kind + ", " + distance + ")";
+    }
+}
@@ -0,0 +1,331 @@
+package server;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metrics.Metrics;
+import metro.Line;
+import metro.LiveMetroNetwork;
+import metro.MetroNetwork;
+import metro.MetroView;
+import metro.Station;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import routing.RouteFinder;
+import routing.RouteGraph;
+import utils.JsonUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Встроенный HTTP-сервис запросов к метро (JSON):
+//  GET /lines                                          - линии
+//  GET /lines/{номер}/stations                         - станции линии по порядку
+//  GET /transfers?line=&station=                       - пересадки со станции
+//  GET /route?fromLine=&from=&toLine=&to=              - маршрут (номера линий можно не указывать)
+//  GET /metrics                                        - метрики процесса в текстовом формате Prometheus
+// Данные читаются из текущего снимка LiveMetroNetwork без блокировок, ответ пишется прямо в тело ответа
+public class MetroHttpServer {
+    private static final Logger rootLogger = LogManager.getRootLogger();
+    private static final Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final String JSON_FILE = "result/metro.json";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int RIDE_COST = 2;
+    private static final int TRANSFER_COST = 5;
+
+    private final LiveMetroNetwork live;
+    private volatile RoutingState routing;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetroHttpServer(LiveMetroNetwork live) {
+        this.live = live;
+    }
+
+    // Запуск: MetroHttpServer [metro.json [порт]]. Для мелких ответов без задержки Нейгла
+    // добавьте флаг JVM -Dsun.net.httpserver.nodelay=true
+    public static void main(String[] args) throws IOException {
+        String fileName = args.length > 0 ? args[0] : JSON_FILE;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        MetroNetwork network = MetroNetwork.copyOf(JsonUtil.loadJsonFile(fileName));
+        new MetroHttpServer(new LiveMetroNetwork(network)).start(port);
+    }
+
+    public void start(int port) throws IOException {
+        executor = newExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/lines", exchange -> handle(exchange, this::lines));
+        server.createContext("/transfers", exchange -> handle(exchange, this::transfers));
+        server.createContext("/route", exchange -> handle(exchange, this::route));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+        Metrics.registerMBean();
+        server.start();
+        rootLogger.info("HTTP-сервис метро запущен на порту {}", getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        rootLogger.info("HTTP-сервис метро остановлен");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    //==================================================================================================================
+
+    private void lines(HttpExchange exchange, MetroNetwork network) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String[] parts = path.split("/");
+        // /lines
+        if (parts.length == 2) {
+            try (JsonGenerator json = startJson(exchange)) {
+                json.writeStartArray();
+                for (Line line : network.getLines()) {
+                    json.writeStartObject();
+                    json.writeStringField("number", line.getNumber());
+                    json.writeStringField("name", line.getName());
+                    json.writeNumberField("stations", line.getStations().size());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+            return;
+        }
+        // /lines/{номер}/stations
+        if (parts.length == 4 && "stations".equals(parts[3])) {
+            Line line = network.getLineByNumber(parts[2]);
+            if (line == null) {
+                sendNotFound(exchange, "Линия " + parts[2] + " не найдена");
+                return;
+            }
+            try (JsonGenerator json = startJson(exchange)) {
+                json.writeStartArray();
+                for (Station station : line.getStations()) {
+                    json.writeString(station.getName());
+                }
+                json.writeEndArray();
+            }
+            return;
+        }
+        sendNotFound(exchange, "Неизвестный путь " + path);
+    }
+
+    private void transfers(HttpExchange exchange, MetroNetwork network) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        Station station = findStation(network, parameter(query, "line"), parameter(query, "station"));
+        if (station == null) {
+            sendNotFound(exchange, "Станция не найдена");
+            return;
+        }
+        NavigableSet<Station> connected = network.getConnections().get(station);
+        try (JsonGenerator json = startJson(exchange)) {
+            json.writeStartArray();
+            if (connected != null) {
+                for (Station to : connected) {
+                    writeStation(json, to);
+                }
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private void route(HttpExchange exchange, MetroNetwork network) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        Station from = findStation(network, parameter(query, "fromLine"), parameter(query, "from"));
+        Station to = findStation(network, parameter(query, "toLine"), parameter(query, "to"));
+        if (from == null || to == null) {
+            sendNotFound(exchange, "Станция не найдена");
+            return;
+        }
+        RoutingState state = routingState(network);
+        RouteWorker worker = state.borrow();
+        try {
+            RouteGraph graph = state.graph;
+            int cost = worker.finder.search(graph.idOf(from), graph.idOf(to));
+            if (cost == RouteFinder.UNREACHABLE) {
+                sendNotFound(exchange, "Маршрут не найден");
+                return;
+            }
+            int[] path = worker.path;
+            int length = worker.finder.copyPath(path);
+            try (JsonGenerator json = startJson(exchange)) {
+                json.writeStartObject();
+                json.writeNumberField("cost", cost);
+                json.writeArrayFieldStart("stations");
+                for (int i = 0; i < length; i++) {
+                    writeStation(json, graph.stationOf(path[i]));
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        } finally {
+            state.release(worker);
+        }
+    }
+
+    private void metrics(HttpExchange exchange, MetroNetwork network) throws IOException {
+        byte[] body = Metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    //==================================================================================================================
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, MetroNetwork network) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        try {
+            // createContext сопоставляет по префиксу: "/linesfoo" тоже попал бы в контекст "/lines"
+            String context = exchange.getHttpContext().getPath();
+            String path = exchange.getRequestURI().getPath();
+            if (!path.equals(context) && !path.startsWith(context + "/")) {
+                sendNotFound(exchange, "Неизвестный путь " + path);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Поддерживается только GET");
+                return;
+            }
+            handler.handle(exchange, live.get());
+        } catch (IllegalArgumentException ex) {
+            // Некорректные параметры запроса, например "%zz" в URLDecoder.decode - ошибка клиента, не сервиса
+            rootLogger.info("Некорректный запрос {}: {}", exchange.getRequestURI(), ex.getMessage());
+            sendErrorIfNotStarted(exchange, 400, "Некорректный запрос: " + ex.getMessage());
+        } catch (Exception ex) {
+            errorLogger.error(ex.getMessage(), ex);
+            sendErrorIfNotStarted(exchange, 500, "Внутренняя ошибка сервера");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Ответ с ошибкой возможен, только пока заголовки не отправлены; иначе соединение просто закрывается
+    private static void sendErrorIfNotStarted(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) return;
+        try {
+            sendError(exchange, status, message);
+        } catch (IOException ex) {
+            errorLogger.error(ex.getMessage(), ex);
+        }
+    }
+
+    // Граф маршрутов и пул поисковиков строятся один раз на каждый опубликованный снимок
+    private RoutingState routingState(MetroNetwork network) {
+        RoutingState state = routing;
+        if (state == null || state.network != network) {
+            state = new RoutingState(network);
+            routing = state;
+        }
+        return state;
+    }
+
+    private static Station findStation(MetroView network, String lineNumber, String stationName) {
+        if (stationName == null) return null;
+        if (lineNumber == null) return network.getStationByName(stationName);
+        Line line = network.getLineByNumber(lineNumber);
+        return line == null ? null : network.getStationByNameAndLine(stationName, line);
+    }
+
+    private static String parameter(String rawQuery, String name) {
+        if (rawQuery == null) return null;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq == name.length() && pair.startsWith(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static JsonGenerator startJson(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, 0);
+        return jsonFactory.createGenerator(exchange.getResponseBody(), JsonEncoding.UTF8);
+    }
+
+    private static void writeStation(JsonGenerator json, Station station) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("line", station.getLine().getNumber());
+        json.writeStringField("station", station.getName());
+        json.writeEndObject();
+    }
+
+    // Неизвестные линия, станция или путь пришли от клиента - это не сбой сервиса, поэтому в общий журнал
+    private static void sendNotFound(HttpExchange exchange, String message) throws IOException {
+        rootLogger.info("{}: {}", exchange.getRequestURI(), message);
+        sendError(exchange, 404, message);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, 0);
+        try (OutputStream out = exchange.getResponseBody();
+             JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("error", message);
+            json.writeEndObject();
+        }
+    }
+
+    // Виртуальные потоки, если JVM их поддерживает (Java 21+), иначе пул потоков по числу ядер
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 4);
+        }
+    }
+
+    // Граф снимка и переиспользуемые поисковики: поток берёт свободный, а не создаёт новый на запрос
+    private static class RoutingState {
+        private final MetroNetwork network;
+        private final RouteGraph graph;
+        private final ConcurrentLinkedQueue<RouteWorker> workers = new ConcurrentLinkedQueue<>();
+
+        RoutingState(MetroNetwork network) {
+            this.network = network;
+            this.graph = RouteGraph.compile(network);
+        }
+
+        RouteWorker borrow() {
+            RouteWorker worker = workers.poll();
+            return worker != null ? worker : new RouteWorker(graph);
+        }
+
+        void release(RouteWorker worker) {
+            workers.offer(worker);
+        }
+    }
+
+    private static class RouteWorker {
+        private final RouteFinder finder;
+        private final int[] path;
+
+        RouteWorker(RouteGraph graph) {
+            this.finder = new RouteFinder(graph, RIDE_COST, TRANSFER_COST);
+            this.path = new int[graph.size()];
+        }
+    }
+}
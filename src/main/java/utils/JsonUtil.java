@@ -1,27 +1,44 @@
 package utils;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import metrics.Counter;
+import metrics.Metrics;
+import metrics.Timer;
 import metro.Line;
 import metro.Metro;
+import metro.MetroView;
 import metro.Station;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
+import java.io.BufferedOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 public class JsonUtil {
     private static final Logger rootLogger = LogManager.getRootLogger();
     private final static Logger errorLogger = LogManager.getLogger("errorLogger");
 
-    private static Metro metro = Metro.getInstance();
+    private final static JsonFactory jsonFactory = new JsonFactory();
+    private final static int WRITE_BUFFER_SIZE = 1 << 16;
     private final static String KEY_STATIONS = "stations";
+    private final static String KEY_LINES = "lines";
+    private final static String KEY_NUMBER = "number";
+    private final static String KEY_NAME = "name";
     private final static String KEY_CONNECTIONS = "connections";
     private final static String KEY_TRANSFER = "transfer";
     private final static String KEY_STATION_FROM = "stationFrom";
@@ -29,92 +46,158 @@ public class JsonUtil {
     private final static String KEY_STATION_TO = "stationTo";
     private final static String KEY_LINE_NUMBER_TO = "lineTo";
 
-    public static void createJsonFile(String fileName) {
+    private final static String EXPORT_HELP = "Время записи JSON-файла";
+    private final static Timer exportTreeTimer =
+            Metrics.timer("metro_json_export_seconds", Metrics.label("writer", "tree"), EXPORT_HELP);
+    private final static Timer exportStreamingTimer =
+            Metrics.timer("metro_json_export_seconds", Metrics.label("writer", "streaming"), EXPORT_HELP);
+    private final static Timer importTimer = Metrics.timer("metro_json_import_seconds", "Время загрузки JSON-файла");
+    private final static Counter ioErrors = Metrics.counter("metro_json_errors_total", "Ошибки записи и чтения JSON-файлов");
+
+    public static void createJsonFile(MetroView metro, String fileName) {
         rootLogger.info("Создание JSON-файла");
+        long start = exportTreeTimer.start();
         try (FileWriter fileWriter = new FileWriter(fileName)) {
-            JSONObject json = createParentJsonObject();
+            JSONObject json = createParentJsonObject(metro);
             String jsonString = new ObjectMapper()
                     .writerWithDefaultPrettyPrinter()
                     .writeValueAsString(json);
             fileWriter.write(jsonString);
         } catch (IOException ex) {
+            ioErrors.increment();
             ex.printStackTrace();
             errorLogger.error(ex.getMessage(), ex);
         }
+        exportTreeTimer.stop(start);
         rootLogger.info("JSON-файл готов!");
     }
 
-    public static void showInfoAboutLinesAndStations(String fileName) {
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject json = (JSONObject) parser.parse(getJsonString(fileName));
-
-            JSONObject stationsObject = (JSONObject) json.get(KEY_STATIONS);
-            TreeSet<Line> lines = new TreeSet<>();
-            stationsObject.keySet().forEach(lineNumberObject -> {
-                String lineNumber = (String) lineNumberObject;
-                Line line = metro.getLineByNumber(lineNumber);
-                lines.add(line);
-            });
-            System.out.println("Вывод информации о метро:");
-            for (Line line : lines) {
-                String info = String.format("%40s (№ %4s)\t:\t%2d станций",
-                        line.getName(),
-                        line.getNumber(),
-                        line.getStations().size()
-                );
-                System.out.println(info);
-            }
-        } catch (Exception ex) {
+    // Потоковая запись: токены пишутся прямо из Metro в буферизованный канал без промежуточного дерева и строки
+    public static void createJsonFileStreaming(MetroView metro, String fileName) {
+        rootLogger.info("Создание JSON-файла (потоковая запись)");
+        long start = exportStreamingTimer.start();
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE)) {
+            writeMetro(metro, out);
+        } catch (IOException ex) {
+            ioErrors.increment();
             ex.printStackTrace();
             errorLogger.error(ex.getMessage(), ex);
         }
+        exportStreamingTimer.stop(start);
+        rootLogger.info("JSON-файл готов!");
     }
 
-    public static void showInfoAboutConnections(String fileName) {
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject json = (JSONObject) parser.parse(getJsonString(fileName));
-
-            JSONArray connectionsObj = (JSONArray) json.get(KEY_CONNECTIONS);
-            String format = "Станция \"%s\" (%s) соединяется с:\n";
-            System.out.println("\nПересадки:");
-            for (Object connectionObj : connectionsObj) {
-                JSONObject connection = (JSONObject) connectionObj;
-
-                String stationFrom = (String) connection.get(KEY_STATION_FROM);
-                String lineNumberFrom = (String) connection.get(KEY_LINE_NUMBER_FROM);
-                Line lineFrom = metro.getLineByNumber(lineNumberFrom);
-
-                JSONArray transfersObj = (JSONArray) connection.get(KEY_TRANSFER);
-                System.out.printf(format, stationFrom, lineFrom.getName());
-                for (Object transferObj : transfersObj) {
-                    JSONObject transfer = (JSONObject) transferObj;
-                    String stationTo = (String) transfer.get(KEY_STATION_TO);
-                    String lineNumberTo = (String) transfer.get(KEY_LINE_NUMBER_TO);
-                    Line lineTo = metro.getLineByNumber(lineNumberTo);
-                    System.out.printf("\tСтанция \"%s\" (%s)\n", stationTo, lineTo.getName());
-                }
-                System.out.println();
-            }
-
-        } catch (Exception ex) {
+    // Однопроходная потоковая загрузка: строит новый Metro прямо из JSON-файла, без парсинга Википедии
+    public static Metro loadJsonFile(String fileName) {
+        rootLogger.info("Загрузка метро из JSON-файла");
+        long start = importTimer.start();
+        Metro loaded = new Metro();
+        try (JsonParser parser = jsonFactory.createParser(Paths.get(fileName).toFile())) {
+            new MetroJsonReader(loaded, parser).read();
+        } catch (IOException ex) {
+            ioErrors.increment();
             ex.printStackTrace();
             errorLogger.error(ex.getMessage(), ex);
         }
+        importTimer.stop(start);
+        rootLogger.info("Метро загружено: линий - {}, станций - {}, пересадок - {}",
+                loaded.getLines().size(),
+                loaded.getStations().size(),
+                loaded.getConnections().size());
+        return loaded;
+    }
+
+    public static void showInfoAboutLinesAndStations(String fileName) {
+        showInfoAboutLinesAndStations(loadJsonFile(fileName));
+    }
+
+    public static void showInfoAboutLinesAndStations(MetroView metro) {
+        System.out.println("Вывод информации о метро:");
+        for (Line line : metro.getLines()) {
+            String info = String.format("%40s (№ %4s)\t:\t%2d станций",
+                    line.getName(),
+                    line.getNumber(),
+                    line.getStations().size()
+            );
+            System.out.println(info);
+        }
+    }
+
+    public static void showInfoAboutConnections(String fileName) {
+        showInfoAboutConnections(loadJsonFile(fileName));
+    }
+
+    public static void showInfoAboutConnections(MetroView metro) {
+        String format = "Станция \"%s\" (%s) соединяется с:\n";
+        System.out.println("\nПересадки:");
+        for (Map.Entry<Station, ? extends NavigableSet<Station>> connection : metro.getConnections().entrySet()) {
+            Station stationFrom = connection.getKey();
+            System.out.printf(format, stationFrom.getName(), stationFrom.getLine().getName());
+            for (Station stationTo : connection.getValue()) {
+                System.out.printf("\tСтанция \"%s\" (%s)\n", stationTo.getName(), stationTo.getLine().getName());
+            }
+            System.out.println();
+        }
     }
 
     //==================================================================================================================
 
-    private static JSONObject createParentJsonObject() {
+    private static void writeMetro(MetroView metro, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+
+            generator.writeObjectFieldStart(KEY_STATIONS);
+            for (Line line : metro.getLines()) {
+                generator.writeArrayFieldStart(line.getNumber());
+                for (Station station : line.getStations()) {
+                    generator.writeString(station.getName());
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+
+            generator.writeArrayFieldStart(KEY_LINES);
+            for (Line line : metro.getLines()) {
+                generator.writeStartObject();
+                generator.writeStringField(KEY_NUMBER, line.getNumber());
+                generator.writeStringField(KEY_NAME, line.getName());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart(KEY_CONNECTIONS);
+            for (Map.Entry<Station, ? extends NavigableSet<Station>> pair : metro.getConnections().entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField(KEY_LINE_NUMBER_FROM, pair.getKey().getLine().getNumber());
+                generator.writeStringField(KEY_STATION_FROM, pair.getKey().getName());
+                generator.writeArrayFieldStart(KEY_TRANSFER);
+                for (Station conStation : pair.getValue()) {
+                    generator.writeStartObject();
+                    generator.writeStringField(KEY_LINE_NUMBER_TO, conStation.getLine().getNumber());
+                    generator.writeStringField(KEY_STATION_TO, conStation.getName());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+
+            generator.writeEndObject();
+        }
+    }
+
+    private static JSONObject createParentJsonObject(MetroView metro) {
         JSONObject obj = new JSONObject();
-        obj.put("stations", getStations());
-        obj.put("lines", getLines());
-        obj.put("connections", getConnections());
+        obj.put("stations", getStations(metro));
+        obj.put("lines", getLines(metro));
+        obj.put("connections", getConnections(metro));
         return obj;
     }
 
-    private static Map<String, List<String>> getStations() {
+    private static Map<String, List<String>> getStations(MetroView metro) {
         Map<String, List<String>> lineWithStations = new HashMap<>();
         for (Line line : metro.getLines()) {
             List<String> stations = new ArrayList<>();
@@ -124,7 +207,7 @@ public class JsonUtil {
         return lineWithStations;
     }
 
-    private static List<Map<String, String>> getLines() {
+    private static List<Map<String, String>> getLines(MetroView metro) {
         List<Map<String, String>> array = new ArrayList<>();
         for (Line line : metro.getLines()) {
             Map<String, String> lineObj = new HashMap<>();
@@ -135,15 +218,15 @@ public class JsonUtil {
         return array;
     }
 
-    private static JSONArray getConnections() {
+    private static JSONArray getConnections(MetroView metro) {
         JSONArray array = new JSONArray();
-        TreeMap<Station, TreeSet<Station>> map = metro.getConnections();
-        for (Map.Entry<Station, TreeSet<Station>> pair : map.entrySet()) {
+        NavigableMap<Station, ? extends NavigableSet<Station>> map = metro.getConnections();
+        for (Map.Entry<Station, ? extends NavigableSet<Station>> pair : map.entrySet()) {
             JSONObject connection = new JSONObject();
             connection.put("lineFrom", pair.getKey().getLine().getNumber());
             connection.put("stationFrom", pair.getKey().getName());
             JSONArray transfer = new JSONArray();
-            TreeSet<Station> connectedStations = map.get(pair.getKey());
+            NavigableSet<Station> connectedStations = pair.getValue();
             for (Station conStation : connectedStations) {
                 JSONObject var = new JSONObject();
                 var.put("lineTo", conStation.getLine().getNumber());
@@ -156,16 +239,172 @@ public class JsonUtil {
         return array;
     }
 
-    private static String getJsonString(String fileName) {
-        StringBuilder builder = new StringBuilder();
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(fileName));
-            lines.forEach(builder::append);
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            errorLogger.error(ex.getMessage(), ex);
+    // Читает токены JSON-файла по порядку и сразу добавляет линии, станции и пересадки в Metro.
+    // Если секция stations или connections встретилась раньше lines, её строки откладываются до появления линий.
+    private static class MetroJsonReader {
+        private final Metro metro;
+        private final JsonParser parser;
+        private final Map<String, List<String>> pendingStations = new HashMap<>();
+        private final List<String[]> pendingConnections = new ArrayList<>();
+        private boolean linesLoaded;
+
+        MetroJsonReader(Metro metro, JsonParser parser) {
+            this.metro = metro;
+            this.parser = parser;
+        }
+
+        void read() throws IOException {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                parser.nextToken();
+                if (KEY_STATIONS.equals(key)) {
+                    readStations();
+                } else if (KEY_LINES.equals(key)) {
+                    readLines();
+                } else if (KEY_CONNECTIONS.equals(key)) {
+                    readConnections();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            linesLoaded = true;
+            pendingStations.forEach(this::addStations);
+            pendingConnections.forEach(this::addConnection);
+        }
+
+        private void readStations() throws IOException {
+            expect(parser.currentToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String lineNumber = parser.getCurrentName();
+                expect(parser.nextToken(), JsonToken.START_ARRAY);
+                List<String> names = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    names.add(parser.getText());
+                }
+                if (!linesLoaded) {
+                    pendingStations.put(lineNumber, names);
+                } else {
+                    addStations(lineNumber, names);
+                }
+            }
+        }
+
+        private void readLines() throws IOException {
+            expect(parser.currentToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String number = null;
+                String name = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = parser.getCurrentName();
+                    parser.nextToken();
+                    if (KEY_NUMBER.equals(key)) {
+                        number = parser.getText();
+                    } else if (KEY_NAME.equals(key)) {
+                        name = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                metro.addLine(new Line(number, name));
+                List<String> names = pendingStations.remove(number);
+                if (names != null) {
+                    addStations(number, names);
+                }
+            }
+            linesLoaded = true;
+        }
+
+        private void readConnections() throws IOException {
+            expect(parser.currentToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String lineFrom = null;
+                String stationFrom = null;
+                List<String> transfer = new ArrayList<>();      // пары lineTo, stationTo
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = parser.getCurrentName();
+                    parser.nextToken();
+                    if (KEY_LINE_NUMBER_FROM.equals(key)) {
+                        lineFrom = parser.getText();
+                    } else if (KEY_STATION_FROM.equals(key)) {
+                        stationFrom = parser.getText();
+                    } else if (KEY_TRANSFER.equals(key)) {
+                        readTransfer(transfer);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                String[] record = new String[transfer.size() + 2];
+                record[0] = lineFrom;
+                record[1] = stationFrom;
+                for (int i = 0; i < transfer.size(); i++) {
+                    record[i + 2] = transfer.get(i);
+                }
+                if (linesLoaded) {
+                    addConnection(record);
+                } else {
+                    pendingConnections.add(record);
+                }
+            }
+        }
+
+        private void readTransfer(List<String> transfer) throws IOException {
+            expect(parser.currentToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String lineTo = null;
+                String stationTo = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = parser.getCurrentName();
+                    parser.nextToken();
+                    if (KEY_LINE_NUMBER_TO.equals(key)) {
+                        lineTo = parser.getText();
+                    } else if (KEY_STATION_TO.equals(key)) {
+                        stationTo = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                transfer.add(lineTo);
+                transfer.add(stationTo);
+            }
+        }
+
+        private void addStations(String lineNumber, List<String> names) {
+            Line line = metro.getLineByNumber(lineNumber);
+            if (line == null) return;
+            for (String name : names) {
+                Station station = new Station(name, line);
+                line.addStation(station);
+                if (!metro.getStations().contains(station)) {
+                    metro.addStation(station);
+                }
+            }
+        }
+
+        // record: lineFrom, stationFrom, затем пары lineTo, stationTo
+        private void addConnection(String[] record) {
+            Station stationFrom = findStation(record[0], record[1]);
+            if (stationFrom == null) return;
+            TreeSet<Station> connectedStations = new TreeSet<>();
+            for (int i = 2; i + 1 < record.length; i += 2) {
+                Station stationTo = findStation(record[i], record[i + 1]);
+                if (stationTo != null) {
+                    connectedStations.add(stationTo);
+                }
+            }
+            metro.addConnections(stationFrom, connectedStations);
+        }
+
+        private Station findStation(String lineNumber, String stationName) {
+            Line line = metro.getLineByNumber(lineNumber);
+            return line == null ? null : metro.getStationByNameAndLine(stationName, line);
+        }
+
+        private void expect(JsonToken actual, JsonToken expected) throws IOException {
+            if (actual != expected) {
+                throw new JsonParseException(parser, "Ожидался токен " + expected + ", получен " + actual);
+            }
         }
-        return builder.toString();
     }
 
 }
@@ -0,0 +1,158 @@
+package utils;
+
+import metro.Line;
+import metro.LineColumns;
+import metro.MetroView;
+import metro.Station;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Запись и открытие файла линий метро (формат описан в LineColumns).
+// Размеры записей считаются первым проходом, затем строки кодируются прямо в один прямой буфер,
+// который сбрасывается в FileChannel по заполнении - ни файл, ни закодированные имена целиком в памяти не держатся
+public class LineColumnsUtil {
+    private static final Logger rootLogger = LogManager.getRootLogger();
+    private final static Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static void createLineColumnsFile(MetroView metro, String fileName) {
+        rootLogger.info("Создание файла линий метро");
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(metro, channel);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        rootLogger.info("Файл линий метро готов!");
+    }
+
+    public static LineColumns openLineColumnsFile(String fileName) {
+        try {
+            return LineColumns.open(Paths.get(fileName));
+        } catch (IOException | IllegalArgumentException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        return null;
+    }
+
+    //==================================================================================================================
+
+    private static void write(MetroView metro, FileChannel channel) throws IOException {
+        // Первый проход только считает длины в байтах: индекс со смещениями пишется раньше самих записей
+        List<Line> lines = new ArrayList<>(metro.getLines());
+        int[] recordSizes = new int[lines.size()];
+        int indexBytes = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            Line line = lines.get(i);
+            int size = 4 + utf8Length(line.getName()) + 4 + line.getStations().size() * 4;
+            for (Station station : line.getStations()) {
+                size += utf8Length(station.getName());
+            }
+            recordSizes[i] = size;
+            indexBytes += 2 + utf8Length(line.getNumber()) + 8 + 4;
+        }
+
+        // Второй проход кодирует строки прямо в прямой буфер и сбрасывает его в канал по заполнении
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.putInt(LineColumns.MAGIC)
+                .putInt(LineColumns.VERSION)
+                .putInt(lines.size())
+                .putInt(indexBytes);
+        long offset = LineColumns.HEADER_BYTES + indexBytes;
+        for (int i = 0; i < lines.size(); i++) {
+            String number = lines.get(i).getNumber();
+            ensure(channel, buffer, 2);
+            buffer.putShort((short) utf8Length(number));
+            put(channel, buffer, encoder, number);
+            ensure(channel, buffer, 8 + 4);
+            buffer.putLong(offset).putInt(recordSizes[i]);
+            offset += recordSizes[i];
+        }
+        for (Line line : lines) {
+            put(channel, buffer, utf8Length(line.getName()));
+            put(channel, buffer, encoder, line.getName());
+            put(channel, buffer, line.getStations().size());
+            int end = 0;
+            for (Station station : line.getStations()) {
+                end += utf8Length(station.getName());
+                put(channel, buffer, end);
+            }
+            for (Station station : line.getStations()) {
+                put(channel, buffer, encoder, station.getName());
+            }
+        }
+        flush(channel, buffer);
+    }
+
+    private static void put(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        ensure(channel, buffer, 4);
+        buffer.putInt(value);
+    }
+
+    private static void put(FileChannel channel, ByteBuffer buffer, CharsetEncoder encoder, String value)
+            throws IOException {
+        // Одиночный суррогат кодировщик не пропустит (CharacterCodingException) - длины в индексе не разойдутся
+        encoder.reset();
+        CharBuffer chars = CharBuffer.wrap(value);
+        CoderResult result;
+        while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+            flush(channel, buffer);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Длина строки в UTF-8 без кодирования; суррогатная пара - 4 байта
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
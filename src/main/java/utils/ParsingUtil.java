@@ -1,5 +1,9 @@
 package utils;
 
+import lombok.AllArgsConstructor;
+import metrics.Counter;
+import metrics.Metrics;
+import metrics.Timer;
 import metro.Line;
 import metro.Metro;
 import metro.Station;
@@ -9,76 +13,175 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import search.StationIndex;
+import search.StationMatch;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ParsingUtil {
     private static final Logger rootLogger = LogManager.getRootLogger();
     private static final Logger errorLogger = LogManager.getLogger("errorLogger");
 
-    public static Metro metro = Metro.getInstance();
-    private static final String WIKI_PAGE = "https://ru.wikipedia.org/wiki/Список_станций_Московского_метрополитена";
-    private static Document wikiPageDoc = getNewDocument();
+    static final String WIKI_PAGE = "https://ru.wikipedia.org/wiki/Список_станций_Московского_метрополитена";
+    static final String TABLES_QUERY = "div.mw-parser-output > table.standard";
+    private static final int DEFAULT_PARSE_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final String PHASE_METRIC = "metro_parse_phase_seconds";
+    private static final String PHASE_HELP = "Время этапов разбора страницы";
+    private static final Timer fetchTimer = Metrics.timer(PHASE_METRIC, Metrics.label("phase", "fetch"), PHASE_HELP);
+    private static final Timer rowsTimer = Metrics.timer(PHASE_METRIC, Metrics.label("phase", "rows"), PHASE_HELP);
+    private static final Timer linkTimer = Metrics.timer(PHASE_METRIC, Metrics.label("phase", "link"), PHASE_HELP);
+    private static final Timer totalTimer = Metrics.timer(PHASE_METRIC, Metrics.label("phase", "total"), PHASE_HELP);
+    private static final Counter rowsCounter = Metrics.counter("metro_parse_rows_total", "Разобранные строки таблиц станций");
+    private static final Counter fetchErrors = Metrics.counter("metro_parse_fetch_errors_total", "Неудачные загрузки страницы");
 
     private static Document getNewDocument() {
         Document doc = null;
+        long start = fetchTimer.start();
         try {
             doc = Jsoup.connect(WIKI_PAGE).maxBodySize(0).get();
         } catch (IOException ex) {
+            fetchErrors.increment();
             ex.printStackTrace();
             errorLogger.error(ex.getMessage(), ex);
+        } finally {
+            fetchTimer.stop(start);
         }
         return doc;
     }
 
-    public static void parseWikiPage() {
-        long start = System.currentTimeMillis();
+    // Страница Википедии загружается только при вызове, а не при загрузке класса
+    public static Metro parseWikiPage() {
+        Metro metro = new Metro();
+        Document wikiPageDoc = getNewDocument();
+        if (wikiPageDoc != null) {
+            parseDocument(wikiPageDoc, metro);
+        }
+        return metro;
+    }
+
+    // Разбор сохранённой HTML-страницы в новый Metro без обращения к сети
+    public static Metro parseHtmlFile(Path file) throws IOException {
+        Metro metro = new Metro();
+        parseDocument(Jsoup.parse(file.toFile(), StandardCharsets.UTF_8.name(), WIKI_PAGE), metro);
+        return metro;
+    }
+
+    public static Metro parseHtml(InputStream in) throws IOException {
+        Metro metro = new Metro();
+        parseDocument(Jsoup.parse(in, StandardCharsets.UTF_8.name(), WIKI_PAGE), metro);
+        return metro;
+    }
+
+    // Разбор уже загруженной страницы (например, полученной условным запросом в UpdateUtil)
+    public static Metro parseDocument(Document wikiPageDoc) {
+        Metro metro = new Metro();
+        parseDocument(wikiPageDoc, metro);
+        return metro;
+    }
+
+    public static Map<Path, Metro> parseHtmlDirectory(Path directory) throws IOException {
+        return parseHtmlDirectory(directory, DEFAULT_PARSE_THREADS);
+    }
+
+    // Каждый *.html/*.htm файл каталога разбирается в отдельный Metro на пуле из не более чем threads потоков
+    public static Map<Path, Metro> parseHtmlDirectory(Path directory, int threads) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> {
+                String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                return Files.isRegularFile(file) && (name.endsWith(".html") || name.endsWith(".htm"));
+            }).sorted().collect(Collectors.toList());
+        }
+        Map<Path, Metro> result = new LinkedHashMap<>();
+        if (files.isEmpty()) return result;
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())));
+        try {
+            Map<Path, Future<Metro>> futures = new LinkedHashMap<>();
+            for (Path file : files) {
+                futures.put(file, pool.submit(() -> parseHtmlFile(file)));
+            }
+            for (Map.Entry<Path, Future<Metro>> future : futures.entrySet()) {
+                try {
+                    result.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException ex) {
+                    errorLogger.error("Не удалось разобрать файл {}", future.getKey(), ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            errorLogger.error(ex.getMessage(), ex);
+        } finally {
+            pool.shutdownNow();
+        }
+        return result;
+    }
+
+    private static void parseDocument(Document wikiPageDoc, Metro metro) {
+        long start = totalTimer.start();
         rootLogger.info("Начало парсинга");
-        parseLinesAndStations();
-        parseConnections();
-        long end = System.currentTimeMillis() - start;
-        rootLogger.info("Метро построено. Время построения: {} мс", end);
+        // Один проход по строкам таблиц: линии и станции, ссылки на пересадки откладываются
+        List<PendingConnections> pendingConnections = parseRows(wikiPageDoc, metro);
+        long rowsEnd = System.nanoTime();
+        rowsTimer.record(rowsEnd - start);
+        // Связывание: все станции уже известны, разрешаем отложенные пересадки
+        StationIndex index = StationIndex.build(metro.getStations());
+        pendingConnections.forEach(pending -> linkConnections(pending, metro, index));
+        long end = System.nanoTime();
+        linkTimer.record(end - rowsEnd);
+        totalTimer.record(end - start);
+        rootLogger.info("Метро построено. Время построения: {} мс (строки таблиц - {} мс, связывание пересадок - {} мс)",
+                (end - start) / 1_000_000, (rowsEnd - start) / 1_000_000, (end - rowsEnd) / 1_000_000);
         rootLogger.info("Всего линий - {}, всего станций - {}, всего пересадок: {}",
                 metro.getLines().size(),
                 metro.getStations().size(),
                 metro.getConnections().size());
     }
 
-    private static void parseLinesAndStations() {
+    private static List<PendingConnections> parseRows(Document wikiPageDoc, Metro metro) {
+        List<PendingConnections> pendingConnections = new ArrayList<>();
         // Три таблицы: подземное метро, монорельс и МЦК
-        Elements tables = wikiPageDoc.select("div.mw-parser-output > table.standard");
-        for (Element rowsTable : tables) {
-            // Все строки текущей таблицы (заголовок, шапка, обычные строки)
-            Elements rows = rowsTable.select("tbody > tr");
-            for (Element correctRow : rows) {
-                // Если строка - заголовок или шапка таблицы
-                if (correctRow.getElementsByTag("th").size() > 0) continue;
-                parseWikiLine(correctRow);
-                parseWikiStation(correctRow);
-            }
-        }
-    }
-
-    private static void parseConnections() {
-        // Три таблицы со станциями-строками подземки, монорельса и МЦК
-        Elements tables = wikiPageDoc.select("div.mw-parser-output > table.standard");
+        Elements tables = wikiPageDoc.select(TABLES_QUERY);
         for (Element rowsTable : tables) {
             // Все строки текущей таблицы (заголовок, шапка, обычные строки)
             Elements rows = rowsTable.select("tbody > tr");
             for (Element correctRow : rows) {
                 // Если строка - заголовок или шапка таблицы
                 if (correctRow.getElementsByTag("th").size() > 0) continue;
-                parseWikiConnections(correctRow);
+                Elements cells = correctRow.select("td");                   // Ячейки строки выбираются один раз
+                rowsCounter.increment();
+                parseWikiLine(cells, metro);
+                parseWikiStation(cells, metro);
+                PendingConnections pending = parseWikiConnections(cells);
+                if (pending != null) {
+                    pendingConnections.add(pending);
+                }
             }
         }
+        return pendingConnections;
     }
 
     //==================================================================================================================
 
-    private static void parseWikiLine(Element row) {
-        Element cellWithLine = row.select("td").get(0);                   // Ячейка таблицы с линией
+    private static void parseWikiLine(Elements cells, Metro metro) {
+        Element cellWithLine = cells.get(0);                                       // Ячейка таблицы с линией
         String lineName = cellWithLine.selectFirst("a").attr("title");  // Имя линии
         String lineNumber = cellWithLine.selectFirst("span").text();               // Номер линии
         Line newLine = new Line(lineNumber, lineName);                             // Новая линия
@@ -88,14 +191,13 @@ public class ParsingUtil {
         }
     }
 
-    private static void parseWikiStation(Element row) {
-        Elements cellWithLine = row.select("td").get(0).select("a");        // Ячейка таблицы с линией/линиями
+    private static void parseWikiStation(Elements cells, Metro metro) {
+        Elements cellWithLine = cells.get(0).select("a");                          // Ячейка таблицы с линией/линиями
+        Element cellWithStation = cells.get(1).selectFirst("a");                  // Ячейка таблицы со станцией
+        String stationName = cellWithStation.text();                                // Имя станции
         for (Element element : cellWithLine) {
             String lineName = element.attr("title");                              // Имя линии
             Line currentLine = metro.getLineByName(lineName);                               // Берём линию из метро по её имени
-
-            Element cellWithStation = row.select("td").get(1).selectFirst("a");     // Ячейка таблицы со станцией
-            String stationName = cellWithStation.text();                                    // Имя станции
             Station newStation = new Station(stationName, currentLine);                     // Новая станция
 
             currentLine.addStation(newStation);                                             // Добавляем новую станцию в линию
@@ -105,65 +207,55 @@ public class ParsingUtil {
         }
     }
 
-    // Получаем все пересадки с каждой станции, где это возможно
-    private static void parseWikiConnections(Element row) {
-        Element cellConnects = row.select("td").get(3)                           // Ячейка с пересадкой
+    // Запоминаем пересадки со станции, где это возможно; разрешаются они после разбора всех строк
+    private static PendingConnections parseWikiConnections(Elements cells) {
+        Element cellConnects = cells.get(3)                                               // Ячейка с пересадкой
                 .selectFirst("td[data-sort-value~=(\\d+.*)]");                            // Ячейка, где пересадка есть (атрибут не равен Infinity)
         if (cellConnects == null)
-            return;                                                 // Элемент равен null, если пересадки нет
-        TreeSet<Station> connectedStations = new TreeSet<>();                             // Список станций, доступных для перехода
-        //===============================================================================================================================
-        Element cellWithLine = row.select("td").get(0);                               // Ячейка с линией отправления
-        String lineNameFrom = cellWithLine.selectFirst("a").attr("title");          // Имя линии
-        Line lineFrom = metro.getLineByName(lineNameFrom);                                    // Линия (начало пересадки)
-
-        Element cellWithStation = row.select("td").get(1).selectFirst("a");           // Ячейка со станцией отправления
-        String nameStationFrom = cellWithStation.text();                                      // Имя станции
-        Station stationFrom = metro.getStationByNameAndLine(nameStationFrom, lineFrom);       // Станция (начало пересадки)
-        //===============================================================================================================================
-        Elements cellWithConnections = cellConnects.select("a");                                  // Все станции, с которыми есть контакт
+            return null;                                                                  // Элемент равен null, если пересадки нет
+        String lineNameFrom = cells.get(0).selectFirst("a").attr("title");        // Имя линии отправления
+        String nameStationFrom = cells.get(1).selectFirst("a").text();                    // Имя станции отправления
+        Elements cellWithConnections = cellConnects.select("a");                          // Все станции, с которыми есть контакт
+        List<String> transferInfos = new ArrayList<>(cellWithConnections.size());
         for (Element stationConnect : cellWithConnections) {
-            String transferInfo = stationConnect.attr("title");                                // Строка, содержащая информацию о пересадке
-            String nameLineTo =
-                    transferInfo.matches("Переход на станцию Деловой центр Калининской линии") ?    // Имя линии, на станцию которой осуществляется пересадка
-                            "Солнцевская линия" : getNameLine(transferInfo);                              // Пересадка на Деловой центр Солнцевской линии прописана неверно - задаём линию явно.
-            Line lineTo = metro.getLineByName(nameLineTo);                                                // Линия станции (конец пересадки)
-
-            String nameStationTo = getNameStation(transferInfo, lineTo);                                  // Имя станции, на которую осуществляется пересадка
-            Station stationTo = metro.getStationByNameAndLine(nameStationTo, lineTo);                            // Станция (конец пересадки)
-            connectedStations.add(stationTo);                                                             // Добавили в список станций пересадки
+            transferInfos.add(stationConnect.attr("title"));                             // Строка, содержащая информацию о пересадке
         }
-        metro.addConnections(stationFrom, connectedStations);                                            // Добавили соединение в метро
+        return new PendingConnections(lineNameFrom, nameStationFrom, transferInfos);
     }
 
-    // Возвращает имя линии из сообщения о пересадки
-    private static String getNameLine(String info) {
-        TreeSet<Line> lines = metro.getLines();
-        String result = null;
-        for (Line line : lines) {
-            String nameLine = line.getName();
-            String subNameLine;
-            if (nameLine.contains("Московск")) {      // Если линия - Московский монорельс или Московское центральное кольцо
-                subNameLine = nameLine.split(" ")[1].substring(0, 4);   // Первые 4 буквы второго слова ("цент" или "моно")
-            } else {
-                subNameLine = nameLine.substring(0, 5);        // Берём первые 5 букв имени линии
-            }
-            if (info.contains(subNameLine)) {                  // Если такое имя линии содержится в инфо
-                result = line.getName();
-                break;
+    // Получаем все пересадки со станции по отложенным ссылкам
+    private static void linkConnections(PendingConnections pending, Metro metro, StationIndex index) {
+        TreeSet<Station> connectedStations = new TreeSet<>();                             // Список станций, доступных для перехода
+        Line lineFrom = metro.getLineByName(pending.lineNameFrom);                                    // Линия (начало пересадки)
+        Station stationFrom = metro.getStationByNameAndLine(pending.nameStationFrom, lineFrom);       // Станция (начало пересадки)
+        for (String transferInfo : pending.transferInfos) {
+            Station stationTo = getStationTo(transferInfo, metro, index);                                // Станция (конец пересадки)
+            if (stationTo != null) {
+                connectedStations.add(stationTo);                                                         // Добавили в список станций пересадки
             }
         }
-        return result;
+        metro.addConnections(stationFrom, connectedStations);                                            // Добавили соединение в метро
     }
 
-    // Возвращает имя станции из сообщения о пересадки
-    private static String getNameStation(String info, Line line) {
-        List<Station> stations = line.getStations();
-        for (Station station : stations) {
-            if (info.contains(station.getName()))
-                return station.getName();
+    // Возвращает станцию из сообщения о пересадке ("Переход на станцию Охотный ряд Сокольнической линии"):
+    // индекс находит станции, чьё имя есть в сообщении, и ранжирует их по близости остатка к имени линии
+    private static Station getStationTo(String info, Metro metro, StationIndex index) {
+        Line expectedLine = info.matches("Переход на станцию Деловой центр Калининской линии") ?
+                metro.getLineByName("Солнцевская линия") : null;      // Пересадка на Деловой центр Солнцевской линии прописана неверно - задаём линию явно.
+        for (StationMatch match : index.mentionedIn(info)) {
+            if (expectedLine == null || match.getLine().equals(expectedLine)) {
+                return match.getStation();
+            }
         }
         errorLogger.error("Сообщение о пересадке \"{}\" не содержит имя станции назначения", info);
         return null;
     }
+
+    // Пересадки строки таблицы, ожидающие связывания
+    @AllArgsConstructor
+    private static class PendingConnections {
+        private final String lineNameFrom;
+        private final String nameStationFrom;
+        private final List<String> transferInfos;
+    }
 }
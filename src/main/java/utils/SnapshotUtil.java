@@ -0,0 +1,161 @@
+package utils;
+
+import metro.Line;
+import metro.MetroSnapshot;
+import metro.MetroView;
+import metro.Station;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+// Запись и открытие бинарного снимка метро (формат описан в MetroSnapshot)
+public class SnapshotUtil {
+    private static final Logger rootLogger = LogManager.getRootLogger();
+    private final static Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    public static void createSnapshotFile(MetroView metro, String fileName) {
+        rootLogger.info("Создание бинарного снимка метро");
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = encode(metro);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        rootLogger.info("Снимок метро готов!");
+    }
+
+    public static MetroSnapshot openSnapshotFile(String fileName) {
+        try {
+            return MetroSnapshot.open(Paths.get(fileName));
+        } catch (IOException | IllegalArgumentException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        return null;
+    }
+
+    //==================================================================================================================
+
+    private static ByteBuffer encode(MetroView metro) {
+        // Нумерация линий и станций: станции идут в порядке линий
+        List<Line> lines = new ArrayList<>(metro.getLines());
+        Map<Line, Integer> lineIds = new HashMap<>();
+        lines.forEach(line -> lineIds.put(line, lineIds.size()));
+        Map<Station, Integer> stationIds = new HashMap<>();
+        List<Station> stations = new ArrayList<>();
+        int lineStationCount = 0;
+        for (Line line : lines) {
+            for (Station station : line.getStations()) {
+                if (stationIds.putIfAbsent(station, stations.size()) == null) {
+                    stations.add(station);
+                }
+            }
+            lineStationCount += line.getStations().size();
+        }
+        for (Station station : metro.getStations()) {
+            if (lineIds.containsKey(station.getLine()) && stationIds.putIfAbsent(station, stations.size()) == null) {
+                stations.add(station);
+            }
+        }
+
+        // Таблица строк без повторов
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] lineNumbers = new int[lines.size()];
+        int[] lineNames = new int[lines.size()];
+        int[] stationNames = new int[stations.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            lineNumbers[i] = stringId(lines.get(i).getNumber(), stringIds, strings);
+            lineNames[i] = stringId(lines.get(i).getName(), stringIds, strings);
+        }
+        for (int i = 0; i < stations.size(); i++) {
+            stationNames[i] = stringId(stations.get(i).getName(), stringIds, strings);
+        }
+        int stringBytes = 0;
+        for (byte[] string : strings) {
+            stringBytes += string.length;
+        }
+
+        // Пересадки в виде списков смежности
+        int[] transferOffsets = new int[stations.size() + 1];
+        List<Integer> transferTargets = new ArrayList<>();
+        for (int i = 0; i < stations.size(); i++) {
+            NavigableSet<Station> connected = metro.getConnections().get(stations.get(i));
+            if (connected != null) {
+                for (Station station : connected) {
+                    Integer target = stationIds.get(station);
+                    if (target != null) {
+                        transferTargets.add(target);
+                    }
+                }
+            }
+            transferOffsets[i + 1] = transferTargets.size();
+        }
+
+        int size = MetroSnapshot.HEADER_INTS * 4
+                + (strings.size() + 1) * 4 + MetroSnapshot.align(stringBytes)
+                + lines.size() * 16
+                + lineStationCount * 4
+                + stations.size() * 8
+                + (stations.size() + 1) * 4 + transferTargets.size() * 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MetroSnapshot.MAGIC)
+                .putInt(MetroSnapshot.VERSION)
+                .putInt(strings.size())
+                .putInt(stringBytes)
+                .putInt(lines.size())
+                .putInt(stations.size())
+                .putInt(lineStationCount)
+                .putInt(transferTargets.size());
+
+        int offset = 0;
+        buffer.putInt(offset);
+        for (byte[] string : strings) {
+            offset += string.length;
+            buffer.putInt(offset);
+        }
+        strings.forEach(buffer::put);
+        buffer.position(buffer.position() + MetroSnapshot.align(stringBytes) - stringBytes);
+
+        int first = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            int count = lines.get(i).getStations().size();
+            buffer.putInt(lineNumbers[i]).putInt(lineNames[i]).putInt(first).putInt(count);
+            first += count;
+        }
+        for (Line line : lines) {
+            line.getStations().forEach(station -> buffer.putInt(stationIds.get(station)));
+        }
+        for (int i = 0; i < stations.size(); i++) {
+            buffer.putInt(stationNames[i]).putInt(lineIds.get(stations.get(i).getLine()));
+        }
+        for (int transferOffset : transferOffsets) {
+            buffer.putInt(transferOffset);
+        }
+        transferTargets.forEach(buffer::putInt);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int stringId(String value, Map<String, Integer> stringIds, List<byte[]> strings) {
+        return stringIds.computeIfAbsent(value, key -> {
+            strings.add(key.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,378 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metro.LiveMetroNetwork;
+import metro.Metro;
+import metro.MetroDiff;
+import metro.MetroNetwork;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+// Инкрементальное обновление: страница запрашивается условно (ETag / Last-Modified), таблицы станций
+// сравниваются по хешу, и только при реальных изменениях строится разница с предыдущим снимком.
+// Разница применяется к LiveMetroNetwork и сохраняется компактным патчем рядом с JSON-файлом.
+// Служебные файлы: <имя>.state (ETag, Last-Modified, хеш таблиц) и <имя>.patch.json
+public class UpdateUtil {
+    private static final Logger rootLogger = LogManager.getRootLogger();
+    private final static Logger errorLogger = LogManager.getLogger("errorLogger");
+
+    private final static JsonFactory jsonFactory = new JsonFactory();
+    private final static String STATE_ETAG = "etag";
+    private final static String STATE_LAST_MODIFIED = "lastModified";
+    private final static String STATE_CONTENT_HASH = "contentHash";
+    private final static String KEY_LINES = "lines";
+    private final static String KEY_STATIONS = "stations";
+    private final static String KEY_TRANSFERS = "transfers";
+    private final static String KEY_ADDED = "added";
+    private final static String KEY_REMOVED = "removed";
+    private final static String KEY_RENAMED = "renamed";
+    private final static String KEY_ORDER = "order";
+    private final static String KEY_NUMBER = "number";
+    private final static String KEY_NAME = "name";
+    private final static String KEY_LINE = "line";
+    private final static String KEY_INDEX = "index";
+    private final static String KEY_FROM = "from";
+    private final static String KEY_TO = "to";
+
+    // Обновление файлов результата; предыдущий снимок читается из jsonFile, только если страница изменилась
+    public static MetroDiff updateFromWiki(String jsonFile, String snapshotFile) {
+        return updateFromWiki(() -> loadLive(jsonFile), jsonFile, snapshotFile);
+    }
+
+    // Обновление работающей модели (например, сервиса) и файлов результата
+    public static MetroDiff updateFromWiki(LiveMetroNetwork live, String jsonFile, String snapshotFile) {
+        return updateFromWiki(() -> live, jsonFile, snapshotFile);
+    }
+
+    // То же для сохранённой страницы: условного запроса нет, изменения определяются по хешу таблиц
+    public static MetroDiff updateFromHtmlFile(LiveMetroNetwork live, Path htmlFile, String jsonFile, String snapshotFile) {
+        Properties state = loadState(jsonFile);
+        try {
+            Document page = Jsoup.parse(htmlFile.toFile(), StandardCharsets.UTF_8.name(), ParsingUtil.WIKI_PAGE);
+            return update(() -> live, page, state, jsonFile, snapshotFile);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        return MetroDiff.empty();
+    }
+
+    public static void createPatchFile(MetroDiff diff, String fileName) {
+        rootLogger.info("Создание файла изменений");
+        try (OutputStream out = Files.newOutputStream(Paths.get(fileName));
+             JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            writePatch(diff, generator);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        rootLogger.info("Файл изменений готов!");
+    }
+
+    public static MetroDiff loadPatchFile(String fileName) {
+        try (InputStream in = Files.newInputStream(Paths.get(fileName))) {
+            return readPatch(new ObjectMapper().readTree(in));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        return MetroDiff.empty();
+    }
+
+    //==================================================================================================================
+
+    private static MetroDiff updateFromWiki(Supplier<LiveMetroNetwork> live, String jsonFile, String snapshotFile) {
+        Properties state = loadState(jsonFile);
+        try {
+            Connection.Response response = fetch(state);
+            if (response.statusCode() == 304) {
+                rootLogger.info("Страница не изменилась (HTTP 304), обновление не требуется");
+                return MetroDiff.empty();
+            }
+            if (response.statusCode() != 200) {
+                errorLogger.error("Страница не загружена: HTTP {} {}", response.statusCode(), response.statusMessage());
+                return MetroDiff.empty();
+            }
+            setOrRemove(state, STATE_ETAG, response.header("ETag"));
+            setOrRemove(state, STATE_LAST_MODIFIED, response.header("Last-Modified"));
+            return update(live, response.parse(), state, jsonFile, snapshotFile);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        return MetroDiff.empty();
+    }
+
+    private static Connection.Response fetch(Properties state) throws IOException {
+        Connection connection = Jsoup.connect(ParsingUtil.WIKI_PAGE).maxBodySize(0).ignoreHttpErrors(true);
+        String etag = state.getProperty(STATE_ETAG);
+        String lastModified = state.getProperty(STATE_LAST_MODIFIED);
+        if (etag != null) {
+            connection.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            connection.header("If-Modified-Since", lastModified);
+        }
+        return connection.execute();
+    }
+
+    private static MetroDiff update(Supplier<LiveMetroNetwork> live, Document page, Properties state,
+                                    String jsonFile, String snapshotFile) {
+        // Остальная страница (счётчики, служебные комментарии) меняется постоянно - хешируем только таблицы
+        String contentHash = contentHash(page);
+        if (contentHash.equals(state.getProperty(STATE_CONTENT_HASH))) {
+            rootLogger.info("Таблицы станций не изменились, обновление не требуется");
+            saveState(state, jsonFile);
+            return MetroDiff.empty();
+        }
+        Metro parsedMetro = ParsingUtil.parseDocument(page);
+        if (parsedMetro.getLines().isEmpty()) {
+            errorLogger.error("Метро не построено, файлы результата не перезаписываются");
+            return MetroDiff.empty();
+        }
+        LiveMetroNetwork network = live.get();
+        MetroDiff diff = MetroDiff.between(network.get(), parsedMetro);
+        rootLogger.info("Изменения метро: {}", diff.summary());
+        if (!diff.isEmpty()) {
+            MetroNetwork updated = network.apply(diff);
+            createPatchFile(diff, patchFileName(jsonFile));
+            JsonUtil.createJsonFileStreaming(updated, jsonFile);
+            SnapshotUtil.createSnapshotFile(updated, snapshotFile);
+            LineColumnsUtil.createLineColumnsFile(updated, linesFileName(jsonFile));
+        }
+        state.setProperty(STATE_CONTENT_HASH, contentHash);
+        saveState(state, jsonFile);
+        return diff;
+    }
+
+    private static LiveMetroNetwork loadLive(String jsonFile) {
+        Metro loaded = Files.exists(Paths.get(jsonFile)) ? JsonUtil.loadJsonFile(jsonFile) : new Metro();
+        return new LiveMetroNetwork(MetroNetwork.copyOf(loaded));
+    }
+
+    private static String contentHash(Document page) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(page.select(ParsingUtil.TABLES_QUERY).outerHtml()
+                    .getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // Состояние без файла результата бесполезно: без предыдущего снимка обновление всегда полное
+    private static Properties loadState(String jsonFile) {
+        Properties state = new Properties();
+        Path stateFile = Paths.get(stateFileName(jsonFile));
+        if (!Files.exists(stateFile) || !Files.exists(Paths.get(jsonFile))) {
+            return state;
+        }
+        try (InputStream in = Files.newInputStream(stateFile)) {
+            state.load(in);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+        return state;
+    }
+
+    private static void saveState(Properties state, String jsonFile) {
+        try (OutputStream out = Files.newOutputStream(Paths.get(stateFileName(jsonFile)))) {
+            state.store(out, "Moscow_subway incremental update state");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            errorLogger.error(ex.getMessage(), ex);
+        }
+    }
+
+    private static void setOrRemove(Properties state, String key, String value) {
+        if (value == null) {
+            state.remove(key);
+        } else {
+            state.setProperty(key, value);
+        }
+    }
+
+    private static String stateFileName(String jsonFile) {
+        return baseName(jsonFile) + ".state";
+    }
+
+    private static String patchFileName(String jsonFile) {
+        return baseName(jsonFile) + ".patch.json";
+    }
+
+    // Файл линий лежит рядом с JSON-файлом: result/metro.json -> result/metro.lines
+    private static String linesFileName(String jsonFile) {
+        return baseName(jsonFile) + ".lines";
+    }
+
+    private static String baseName(String jsonFile) {
+        return jsonFile.endsWith(".json") ? jsonFile.substring(0, jsonFile.length() - ".json".length()) : jsonFile;
+    }
+
+    // Формат патча:
+    // { "lines": { "added": [{number, name, stations}], "removed": [number], "renamed": [{number, name}] },
+    //   "stations": [{ line, added: [{index, name}], removed: [name], renamed: [{from, to}], order?: [name] }],
+    //   "transfers": { "added": [[lineFrom, stationFrom, lineTo, stationTo]], "removed": [...] } }
+    private static void writePatch(MetroDiff diff, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+
+        generator.writeObjectFieldStart(KEY_LINES);
+        generator.writeArrayFieldStart(KEY_ADDED);
+        for (MetroDiff.LineEntry line : diff.getAddedLines()) {
+            generator.writeStartObject();
+            generator.writeStringField(KEY_NUMBER, line.getNumber());
+            generator.writeStringField(KEY_NAME, line.getName());
+            writeStrings(generator, KEY_STATIONS, line.getStations());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        writeStrings(generator, KEY_REMOVED, diff.getRemovedLines());
+        generator.writeArrayFieldStart(KEY_RENAMED);
+        for (Map.Entry<String, String> renamed : diff.getRenamedLines().entrySet()) {
+            generator.writeStartObject();
+            generator.writeStringField(KEY_NUMBER, renamed.getKey());
+            generator.writeStringField(KEY_NAME, renamed.getValue());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+
+        generator.writeArrayFieldStart(KEY_STATIONS);
+        for (Map.Entry<String, MetroDiff.StationChanges> entry : diff.getStationChanges().entrySet()) {
+            MetroDiff.StationChanges changes = entry.getValue();
+            generator.writeStartObject();
+            generator.writeStringField(KEY_LINE, entry.getKey());
+            generator.writeArrayFieldStart(KEY_ADDED);
+            for (Map.Entry<Integer, String> added : changes.getAdded().entrySet()) {
+                generator.writeStartObject();
+                generator.writeNumberField(KEY_INDEX, added.getKey());
+                generator.writeStringField(KEY_NAME, added.getValue());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            writeStrings(generator, KEY_REMOVED, changes.getRemoved());
+            generator.writeArrayFieldStart(KEY_RENAMED);
+            for (Map.Entry<String, String> renamed : changes.getRenamed().entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField(KEY_FROM, renamed.getKey());
+                generator.writeStringField(KEY_TO, renamed.getValue());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            if (changes.getOrder() != null) {
+                writeStrings(generator, KEY_ORDER, changes.getOrder());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeObjectFieldStart(KEY_TRANSFERS);
+        writeTransfers(generator, KEY_ADDED, diff.getAddedTransfers());
+        writeTransfers(generator, KEY_REMOVED, diff.getRemovedTransfers());
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+    }
+
+    private static void writeStrings(JsonGenerator generator, String field, List<String> values) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeTransfers(JsonGenerator generator, String field,
+                                       Iterable<MetroDiff.Transfer> transfers) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (MetroDiff.Transfer transfer : transfers) {
+            generator.writeStartArray();
+            generator.writeString(transfer.getLineFrom());
+            generator.writeString(transfer.getStationFrom());
+            generator.writeString(transfer.getLineTo());
+            generator.writeString(transfer.getStationTo());
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+    }
+
+    private static MetroDiff readPatch(JsonNode root) {
+        MetroDiff.Builder diff = MetroDiff.builder();
+        JsonNode lines = root.path(KEY_LINES);
+        for (JsonNode line : lines.path(KEY_ADDED)) {
+            diff.addLine(line.path(KEY_NUMBER).asText(), line.path(KEY_NAME).asText(), readStrings(line.path(KEY_STATIONS)));
+        }
+        readStrings(lines.path(KEY_REMOVED)).forEach(diff::removeLine);
+        for (JsonNode renamed : lines.path(KEY_RENAMED)) {
+            diff.renameLine(renamed.path(KEY_NUMBER).asText(), renamed.path(KEY_NAME).asText());
+        }
+
+        for (JsonNode changes : root.path(KEY_STATIONS)) {
+            NavigableMap<Integer, String> added = new TreeMap<>();
+            for (JsonNode station : changes.path(KEY_ADDED)) {
+                added.put(station.path(KEY_INDEX).asInt(), station.path(KEY_NAME).asText());
+            }
+            Map<String, String> renamed = new LinkedHashMap<>();
+            for (JsonNode station : changes.path(KEY_RENAMED)) {
+                renamed.put(station.path(KEY_FROM).asText(), station.path(KEY_TO).asText());
+            }
+            List<String> order = changes.has(KEY_ORDER) ? readStrings(changes.path(KEY_ORDER)) : null;
+            diff.changeStations(changes.path(KEY_LINE).asText(),
+                    new MetroDiff.StationChanges(added, readStrings(changes.path(KEY_REMOVED)), renamed, order));
+        }
+
+        JsonNode transfers = root.path(KEY_TRANSFERS);
+        for (JsonNode transfer : transfers.path(KEY_ADDED)) {
+            diff.addTransfer(readTransfer(transfer));
+        }
+        for (JsonNode transfer : transfers.path(KEY_REMOVED)) {
+            diff.removeTransfer(readTransfer(transfer));
+        }
+        return diff.build();
+    }
+
+    private static List<String> readStrings(JsonNode array) {
+        List<String> values = new ArrayList<>(array.size());
+        for (JsonNode value : array) {
+            values.add(value.asText());
+        }
+        return values;
+    }
+
+    private static MetroDiff.Transfer readTransfer(JsonNode transfer) {
+        return new MetroDiff.Transfer(transfer.path(0).asText(), transfer.path(1).asText(),
+                transfer.path(2).asText(), transfer.path(3).asText());
+    }
+}
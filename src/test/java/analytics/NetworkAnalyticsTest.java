@@ -0,0 +1,70 @@
+package analytics;
+
+import metro.MetroNetwork;
+import org.junit.Test;
+import routing.EdgeCosts;
+import routing.RouteGraph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+// Посредничество и точки сочленения на маленьких графах, посчитанных вручную
+public class NetworkAnalyticsTest {
+    private static final double EPSILON = 1e-9;
+
+    // Цепочка a1 - a2 - a3 = b1 - b2 (= пересадка): у средних станций i * (4 - i) путей, крайние - нули
+    @Test
+    public void chainBetweennessAndArticulationPoints() {
+        MetroNetwork network = MetroNetwork.builder()
+                .addLine("1", "Первая").addStation("1", "a1").addStation("1", "a2").addStation("1", "a3")
+                .addLine("2", "Вторая").addStation("2", "b1").addStation("2", "b2")
+                .addConnection("1", "a3", "2", "b1")
+                .build();
+        RouteGraph graph = RouteGraph.compile(network);
+        NetworkAnalytics analytics = new NetworkAnalytics(graph, EdgeCosts.fixed(graph, 1, 1), 0);
+
+        double[] betweenness = analytics.betweenness();
+        assertEquals(0, betweenness[id(graph, network, "1", "a1")], EPSILON);
+        assertEquals(3, betweenness[id(graph, network, "1", "a2")], EPSILON);
+        assertEquals(4, betweenness[id(graph, network, "1", "a3")], EPSILON);
+        assertEquals(3, betweenness[id(graph, network, "2", "b1")], EPSILON);
+        assertEquals(0, betweenness[id(graph, network, "2", "b2")], EPSILON);
+
+        boolean[] expected = new boolean[graph.size()];
+        expected[id(graph, network, "1", "a2")] = true;
+        expected[id(graph, network, "1", "a3")] = true;
+        expected[id(graph, network, "2", "b1")] = true;
+        assertArrayEquals(expected, analytics.articulationPoints());
+    }
+
+    // Кольцо A - B = C - D = A, все рёбра стоят 1, кроме B -> A (5). Кратчайшие пути по направлениям:
+    //   A -> C: через B и через D поровну;  C -> A: через D;  B -> D: через C;  D -> B: через A и через C поровну;
+    //   B -> A: B - C - D - A (3 < 5).  Итого по направлениям A 0.5, B 0.5, C 2.5, D 2.5, посредничество - половина
+    @Test
+    public void asymmetricCostsAverageBothDirections() {
+        MetroNetwork network = MetroNetwork.builder()
+                .addLine("1", "Первая").addStation("1", "A").addStation("1", "B")
+                .addLine("2", "Вторая").addStation("2", "C").addStation("2", "D")
+                .addConnection("1", "B", "2", "C")
+                .addConnection("2", "D", "1", "A")
+                .build();
+        RouteGraph graph = RouteGraph.compile(network);
+        int a = id(graph, network, "1", "A");
+        int b = id(graph, network, "1", "B");
+        EdgeCosts costs = (from, edge, time) -> from == b && graph.edgeTarget(edge) == a ? 5 : 1;
+        NetworkAnalytics analytics = new NetworkAnalytics(graph, costs, 0);
+
+        double[] betweenness = analytics.betweenness();
+        assertEquals(0.25, betweenness[a], EPSILON);
+        assertEquals(0.25, betweenness[b], EPSILON);
+        assertEquals(1.25, betweenness[id(graph, network, "2", "C")], EPSILON);
+        assertEquals(1.25, betweenness[id(graph, network, "2", "D")], EPSILON);
+        assertArrayEquals(new boolean[graph.size()], analytics.articulationPoints());
+    }
+
+    //==================================================================================================================
+
+    private static int id(RouteGraph graph, MetroNetwork network, String line, String station) {
+        return graph.idOf(network.getStationByNameAndLine(station, network.getLineByNumber(line)));
+    }
+}
@@ -0,0 +1,109 @@
+package metro;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.JsonUtil;
+import utils.LineColumnsUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Файл линий: каждая линия читается отдельно без потерь, обрезанный или испорченный файл отклоняется
+public class LineColumnsTest {
+    private static final String JSON_FILE = "result/metro.json";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripKeepsLinesAndStationOrder() throws Exception {
+        Metro metro = JsonUtil.loadJsonFile(JSON_FILE);
+        Path file = writeLinesFile(metro);
+        try (LineColumns columns = LineColumns.open(file)) {
+            assertEquals(metro.getLines().size(), columns.getLineCount());
+            for (Line expected : metro.getLines()) {
+                Line actual = columns.readLine(expected.getNumber());
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(names(expected), names(actual));
+            }
+            assertNull(columns.readLine("нет такой"));
+        }
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws Exception {
+        byte[] bytes = Files.readAllBytes(writeLinesFile(JsonUtil.loadJsonFile(JSON_FILE)));
+        for (int length : new int[]{0, 10, LineColumns.HEADER_BYTES + 5, bytes.length / 2, bytes.length - 1}) {
+            Path truncated = folder.newFile("truncated-" + length + ".lines").toPath();
+            Files.write(truncated, Arrays.copyOf(bytes, length));
+            assertRejected(truncated);
+        }
+    }
+
+    @Test
+    public void corruptHeaderIsRejectedWithoutAllocating() throws Exception {
+        byte[] bytes = Files.readAllBytes(writeLinesFile(JsonUtil.loadJsonFile(JSON_FILE)));
+        // indexBytes = 0x7F...: раньше приводил к OutOfMemoryError
+        bytes[12] = 0x7f;
+        Path corrupt = folder.newFile("corrupt-header.lines").toPath();
+        Files.write(corrupt, bytes);
+        assertRejected(corrupt);
+    }
+
+    @Test
+    public void corruptStationEndsAreRejected() throws Exception {
+        Metro metro = JsonUtil.loadJsonFile(JSON_FILE);
+        Path file = writeLinesFile(metro);
+        Line first = metro.getLines().first();
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        // Первая запись идёт сразу за индексом: имя, число станций, затем концы имён станций
+        int record = LineColumns.HEADER_BYTES + buffer.getInt(12);
+        int endsPos = record + 4 + buffer.getInt(record) + 4;
+        buffer.putInt(endsPos, Integer.MAX_VALUE);
+        Path corrupt = folder.newFile("corrupt-ends.lines").toPath();
+        Files.write(corrupt, bytes);
+        try (LineColumns columns = LineColumns.open(corrupt)) {
+            columns.readLine(first.getNumber());
+            fail("Испорченная запись линии принята");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("Файл линий"));
+        }
+    }
+
+    //==================================================================================================================
+
+    private Path writeLinesFile(Metro metro) throws IOException {
+        Path file = folder.newFile().toPath();
+        LineColumnsUtil.createLineColumnsFile(metro, file.toString());
+        return file;
+    }
+
+    private static void assertRejected(Path file) throws IOException {
+        try (LineColumns columns = LineColumns.open(file)) {
+            for (String number : columns.getLineNumbers()) {
+                columns.readLine(number);
+            }
+            fail("Обрезанный или испорченный файл принят: " + file.getFileName());
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("обрезан"));
+        }
+    }
+
+    private static List<String> names(Line line) {
+        List<String> names = new ArrayList<>();
+        line.getStations().forEach(station -> names.add(station.getName()));
+        return names;
+    }
+}
@@ -0,0 +1,36 @@
+package metro;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Порядок линий по номеру: числовые, затем с буквой после той же цифры, затем нечисловые по строке
+public class LineTest {
+
+    @Test
+    public void linesSortByNumber() {
+        List<Line> lines = new ArrayList<>();
+        for (String number : Arrays.asList("МЦК", "11А", "2", "D1", "11", "1", "8А", "8")) {
+            lines.add(new Line(number, "Линия " + number));
+        }
+        Collections.sort(lines);
+        List<String> numbers = new ArrayList<>();
+        lines.forEach(line -> numbers.add(line.getNumber()));
+        assertEquals(Arrays.asList("1", "2", "8", "8А", "11", "11А", "D1", "МЦК"), numbers);
+    }
+
+    @Test
+    public void longNumbersDoNotOverflow() {
+        Line huge = new Line("99999999999999999999", "Длинный номер");
+        Line small = new Line("15", "Пятнадцатая");
+        Line named = new Line("МЦК", "Кольцо");
+        assertTrue(small.compareTo(huge) < 0);
+        assertTrue(huge.compareTo(named) < 0);
+    }
+}
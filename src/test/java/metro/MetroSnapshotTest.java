@@ -0,0 +1,59 @@
+package metro;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.JsonUtil;
+import utils.SnapshotUtil;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Снимок должен восстанавливать метро без потерь: JSON из toMetro() совпадает с текущим result/metro.json
+public class MetroSnapshotTest {
+    private static final String JSON_FILE = "result/metro.json";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripMatchesJsonOutput() throws Exception {
+        Metro loaded = JsonUtil.loadJsonFile(JSON_FILE);
+        File expectedJson = folder.newFile("expected.json");
+        File snapshotFile = folder.newFile("metro.snapshot");
+        File actualJson = folder.newFile("actual.json");
+        JsonUtil.createJsonFileStreaming(loaded, expectedJson.getPath());
+
+        SnapshotUtil.createSnapshotFile(loaded, snapshotFile.getPath());
+        MetroSnapshot snapshot = SnapshotUtil.openSnapshotFile(snapshotFile.getPath());
+        assertNotNull(snapshot);
+        JsonUtil.createJsonFileStreaming(snapshot.toMetro(), actualJson.getPath());
+
+        byte[] expected = Files.readAllBytes(expectedJson.toPath());
+        assertTrue(expected.length > 0);
+        assertArrayEquals(expected, Files.readAllBytes(actualJson.toPath()));
+    }
+
+    @Test
+    public void truncatedSnapshotIsRejected() throws Exception {
+        Path snapshotFile = folder.newFile("metro.snapshot").toPath();
+        SnapshotUtil.createSnapshotFile(JsonUtil.loadJsonFile(JSON_FILE), snapshotFile.toString());
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        for (int length : new int[]{0, 16, bytes.length / 2, bytes.length - 4}) {
+            try {
+                new MetroSnapshot(ByteBuffer.wrap(Arrays.copyOf(bytes, length)));
+                fail("Обрезанный до " + length + " байт снимок принят");
+            } catch (IllegalArgumentException ex) {
+                assertTrue(ex.getMessage(), ex.getMessage().contains("обрезан"));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package routing;
+
+import metro.MetroNetwork;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import utils.JsonUtil;
+
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Маршруты Йена на графе из result/metro.json и времён result/travel-times.csv: первый совпадает с обычным поиском,
+// все различны, без циклов, по неубыванию стоимости, а стоимость равна сумме рёбер с учётом ожидания поездов
+public class AlternativeRoutesTest {
+    private static final String JSON_FILE = "result/metro.json";
+    private static final String TIMES_FILE = "result/travel-times.csv";
+    private static final int K = 5;
+    private static final int PAIRS = 30;
+
+    private static RouteGraph graph;
+    private static EdgeCosts costs;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        graph = RouteGraph.compile(MetroNetwork.copyOf(JsonUtil.loadJsonFile(JSON_FILE)));
+        costs = TravelTimes.load(Paths.get(TIMES_FILE)).compile(graph);
+    }
+
+    @Test
+    public void firstPathIsShortestPath() {
+        AlternativeRoutes routes = new AlternativeRoutes(graph, costs);
+        RouteFinder finder = new RouteFinder(graph, costs);
+        int[] nodes = new int[graph.size()];
+        for (int departure : departures()) {
+            Random random = new Random(departure);
+            for (int i = 0; i < PAIRS; i++) {
+                int source = random.nextInt(graph.size());
+                int target = random.nextInt(graph.size());
+                int cost = finder.search(source, target, departure, Heuristic.NONE);
+                List<AlternativeRoutes.Path> paths = routes.find(source, target, K, departure);
+                assertEquals(cost, paths.get(0).getCost());
+                int length = finder.copyPath(nodes);
+                assertArrayEquals(Arrays.copyOf(nodes, length), paths.get(0).getNodes());
+            }
+        }
+    }
+
+    @Test
+    public void pathsAreDistinctLooplessAndOrdered() {
+        AlternativeRoutes routes = new AlternativeRoutes(graph, costs);
+        for (int departure : departures()) {
+            Random random = new Random(departure);
+            for (int i = 0; i < PAIRS; i++) {
+                int source = random.nextInt(graph.size());
+                int target = random.nextInt(graph.size());
+                List<AlternativeRoutes.Path> paths = routes.find(source, target, K, departure);
+                assertTrue(paths.size() <= K);
+                Set<List<Integer>> distinct = new HashSet<>();
+                int previousCost = Integer.MIN_VALUE;
+                for (AlternativeRoutes.Path path : paths) {
+                    int[] nodes = path.getNodes();
+                    assertEquals(source, nodes[0]);
+                    assertEquals(target, nodes[nodes.length - 1]);
+                    assertTrue("маршрут повторяется", distinct.add(boxed(nodes)));
+                    assertEquals("маршрут с циклом", nodes.length, new HashSet<>(boxed(nodes)).size());
+                    assertTrue("стоимость убывает", path.getCost() >= previousCost);
+                    assertEquals(resum(nodes, departure), path.getCost());
+                    previousCost = path.getCost();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameStationIsSinglePathOfBoardingWait() {
+        AlternativeRoutes routes = new AlternativeRoutes(graph, costs);
+        List<AlternativeRoutes.Path> paths = routes.find(0, 0, K, departures()[0]);
+        assertEquals(1, paths.size());
+        assertEquals(1, paths.get(0).length());
+    }
+
+    //==================================================================================================================
+
+    // Утро, смена периодов и ночь - ожидание поездов на пересадках зависит от момента прихода
+    private static int[] departures() {
+        return new int[]{
+                LocalTime.of(8, 30).toSecondOfDay(),
+                LocalTime.of(9, 58).toSecondOfDay(),
+                LocalTime.of(0, 50).toSecondOfDay()};
+    }
+
+    // Стоимость заново: ожидание на станции отправления, затем рёбра в момент прихода на их начало
+    private static int resum(int[] nodes, int departure) {
+        int cost = costs.boarding(nodes[0], departure);
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            int edge = graph.edgeBetween(nodes[i], nodes[i + 1]);
+            assertTrue("нет ребра " + nodes[i] + " -> " + nodes[i + 1], edge >= 0);
+            cost += costs.cost(nodes[i], edge, departure + cost);
+        }
+        return cost;
+    }
+
+    private static List<Integer> boxed(int[] nodes) {
+        Integer[] boxed = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            boxed[i] = nodes[i];
+        }
+        return Arrays.asList(boxed);
+    }
+}
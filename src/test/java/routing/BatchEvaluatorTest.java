@@ -0,0 +1,67 @@
+package routing;
+
+import metro.MetroNetwork;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.JsonUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+// Пакетная оценка: та же станция - 0 без ожидания поезда, CRLF-файл читается как LF, неизвестные станции - -1
+public class BatchEvaluatorTest {
+    private static final String JSON_FILE = "result/metro.json";
+    private static final String TIMES_FILE = "result/travel-times.csv";
+
+    private static RouteGraph graph;
+    private static EdgeCosts costs;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        graph = RouteGraph.compile(MetroNetwork.copyOf(JsonUtil.loadJsonFile(JSON_FILE)));
+        costs = TravelTimes.load(Paths.get(TIMES_FILE)).compile(graph);
+    }
+
+    @Test
+    public void sameStationIsZero() throws Exception {
+        // Ночью ожидание поезда велико, но для пары "станция - она же" поездки нет
+        int night = LocalTime.of(3, 0).toSecondOfDay();
+        assertNotEquals(0, costs.boarding(0, night));
+        List<String> rows = evaluate(night, "01;Сокольники;01;Сокольники\n01;Сокольники;01;Красносельская\n");
+        assertEquals("01;Сокольники;01;Сокольники;0;0", rows.get(0));
+        assertNotEquals("0", rows.get(1).split(";")[4]);
+    }
+
+    @Test
+    public void crlfInputMatchesLf() throws Exception {
+        String pairs = "01;Сокольники;01;Лубянка\n01;Лубянка;03;Арбатская;лишний столбец\n# комментарий\n"
+                + "01;Нет такой;01;Лубянка\n";
+        int departure = LocalTime.of(8, 30).toSecondOfDay();
+        List<String> lf = evaluate(departure, pairs);
+        assertEquals(3, lf.size());
+        assertEquals(lf, evaluate(departure, pairs.replace("\n", "\r\n")));
+        assertEquals("01;Нет такой;01;Лубянка;-1;-1", lf.get(2));
+    }
+
+    //==================================================================================================================
+
+    private List<String> evaluate(int departure, String pairs) throws Exception {
+        Path input = folder.newFile().toPath();
+        Path output = folder.newFile().toPath();
+        Files.write(input, pairs.getBytes(StandardCharsets.UTF_8));
+        new BatchEvaluator(graph, costs, departure, 2).evaluate(input, output, 2);
+        return Files.readAllLines(output, StandardCharsets.UTF_8);
+    }
+}
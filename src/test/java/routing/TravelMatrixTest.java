@@ -0,0 +1,66 @@
+package routing;
+
+import metro.MetroNetwork;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.JsonUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Матрица после save/load отвечает так же, как посчитанная; файл не того размера отклоняется
+public class TravelMatrixTest {
+    private static final String JSON_FILE = "result/metro.json";
+
+    private static RouteGraph graph;
+    private static TravelMatrix matrix;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void compute() throws Exception {
+        graph = RouteGraph.compile(MetroNetwork.copyOf(JsonUtil.loadJsonFile(JSON_FILE)));
+        matrix = TravelMatrix.compute(graph, 2, 5);
+    }
+
+    @Test
+    public void saveLoadRoundTrip() throws Exception {
+        Path file = folder.newFile("metro.matrix").toPath();
+        matrix.save(file);
+        TravelMatrix loaded = TravelMatrix.load(file, graph);
+        assertEquals(matrix.getRideCost(), loaded.getRideCost());
+        assertEquals(matrix.getTransferCost(), loaded.getTransferCost());
+        for (int from = 0; from < graph.size(); from++) {
+            for (int to = 0; to < graph.size(); to++) {
+                assertEquals(matrix.travelTime(from, to), loaded.travelTime(from, to));
+                assertEquals(matrix.transfers(from, to), loaded.transfers(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void wrongSizeIsRejected() throws Exception {
+        Path file = folder.newFile("metro.matrix").toPath();
+        matrix.save(file);
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length : new int[]{0, 12, 20, bytes.length / 2, bytes.length - 1, bytes.length + 1}) {
+            Path broken = folder.newFile("broken-" + length + ".matrix").toPath();
+            Files.write(broken, Arrays.copyOf(bytes, length));
+            try {
+                TravelMatrix.load(broken, graph);
+                fail("Матрица размером " + length + " байт принята");
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage(), ex.getMessage().contains("обрезан"));
+            }
+        }
+    }
+}
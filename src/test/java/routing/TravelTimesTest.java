@@ -0,0 +1,143 @@
+package routing;
+
+import metro.Line;
+import metro.Metro;
+import metro.Station;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.JsonUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+// Ожидание поезда по интервалам линии: границы периодов, период через полночь, время до открытия
+public class TravelTimesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Line line = new Line("01", "Сокольническая линия");
+    private final Line dayLine = new Line("02", "Замоскворецкая линия");
+    private TravelTimes times;
+
+    @Before
+    public void load() throws Exception {
+        Path file = folder.newFile("travel-times.csv").toPath();
+        Files.write(file, Arrays.asList(
+                "# интервалы",
+                "default;ride;100",
+                "default;walk;200",
+                "ride;01;Сокольники;Красносельская;150",
+                "walk;01;Комсомольская;02;Театральная;300",
+                "headway;01;05:30;07:00;180",
+                "headway;01;07:00;10:00;90",
+                "headway;01;10:00;20:00;150",
+                "headway;01;20:00;01:00;240",
+                "headway;02;06:00;23:00;300",
+                "неизвестная;строка"), StandardCharsets.UTF_8);
+        times = TravelTimes.load(file);
+    }
+
+    @Test
+    public void waitInsideWindowIsHalfHeadway() {
+        assertEquals(45, times.waitSeconds(line, at("08:30")));
+        assertEquals(75, times.waitSeconds(line, at("12:00")));
+    }
+
+    @Test
+    public void waitAtWindowBoundary() {
+        // Ровно в 07:00 действует уже новый период
+        assertEquals(45, times.waitSeconds(line, at("07:00")));
+        // За секунду до смены периода выгоднее дождаться поезда нового периода, чем полинтервала старого
+        assertEquals(1 + 45, times.waitSeconds(line, at("07:00") - 1));
+        assertEquals(30 + 45, times.waitSeconds(line, at("07:00") - 30));
+    }
+
+    @Test
+    public void waitAcrossMidnight() {
+        assertEquals(120, times.waitSeconds(line, at("23:59")));
+        assertEquals(120, times.waitSeconds(line, at("00:30")));
+        // Время после полуночи следующих суток приводится к суткам
+        assertEquals(120, times.waitSeconds(line, 24 * 3600 + at("00:30")));
+    }
+
+    @Test
+    public void waitBeforeOpening() {
+        // Период 20:00-01:00 закончился, следующий поезд - в 05:30 плюс полинтервала
+        assertEquals(at("05:30") - at("03:00") + 90, times.waitSeconds(line, at("03:00")));
+        assertEquals(90, times.waitSeconds(line, at("05:30")));
+    }
+
+    @Test
+    public void waitAfterLastWindowRollsOverToTomorrow() {
+        assertEquals(at("06:00") + 24 * 3600 - at("23:30") + 150, times.waitSeconds(dayLine, at("23:30")));
+    }
+
+    @Test
+    public void laterArrivalNeverDepartsEarlier() {
+        int previous = Integer.MIN_VALUE;
+        for (int t = 0; t < 2 * 24 * 3600; t += 10) {
+            int departure = t + times.waitSeconds(line, t);
+            assertTrue("отправление раньше в " + t, departure >= previous);
+            previous = departure;
+        }
+    }
+
+    @Test
+    public void lineWithoutHeadwaysIsAlwaysOpen() {
+        assertEquals(0, times.waitSeconds(new Line("03", "Арбатско-Покровская линия"), at("03:00")));
+        assertEquals(0, TravelTimes.defaults().waitSeconds(line, at("03:00")));
+    }
+
+    @Test
+    public void ridesAndWalksAreSymmetricWithDefaults() {
+        Station sokolniki = new Station("Сокольники", line);
+        Station krasnoselskaya = new Station("Красносельская", line);
+        Station komsomolskaya = new Station("Комсомольская", line);
+        Station teatralnaya = new Station("Театральная", dayLine);
+        assertEquals(150, times.rideSeconds(sokolniki, krasnoselskaya));
+        assertEquals(150, times.rideSeconds(krasnoselskaya, sokolniki));
+        assertEquals(100, times.rideSeconds(krasnoselskaya, komsomolskaya));
+        assertEquals(300, times.walkSeconds(komsomolskaya, teatralnaya));
+        assertEquals(300, times.walkSeconds(teatralnaya, komsomolskaya));
+        assertEquals(200, times.walkSeconds(sokolniki, teatralnaya));
+    }
+
+    @Test
+    public void shippedFileMatchesSokolnicheskayaStations() throws Exception {
+        // Опечатка в имени станции молча дала бы значение по умолчанию - проверяем, что строки ride/walk применились
+        Metro metro = JsonUtil.loadJsonFile("result/metro.json");
+        TravelTimes shipped = TravelTimes.load(Paths.get("result/travel-times.csv"));
+        Line sokolnicheskaya = metro.getLineByNumber("01");
+        List<Station> stations = sokolnicheskaya.getStations();
+        for (int i = 0; i + 1 < stations.size(); i++) {
+            assertNotEquals(stations.get(i).getName(), TravelTimes.DEFAULT_RIDE_SECONDS,
+                    shipped.rideSeconds(stations.get(i), stations.get(i + 1)));
+        }
+        for (Map.Entry<Station, ? extends NavigableSet<Station>> entry : metro.getConnections().entrySet()) {
+            if (!entry.getKey().getLine().equals(sokolnicheskaya)) continue;
+            for (Station to : entry.getValue()) {
+                assertNotEquals(entry.getKey().getName() + " - " + to.getName(), TravelTimes.DEFAULT_WALK_SECONDS,
+                        shipped.walkSeconds(entry.getKey(), to));
+            }
+        }
+    }
+
+    //==================================================================================================================
+
+    private static int at(String time) {
+        return LocalTime.parse(time).toSecondOfDay();
+    }
+}
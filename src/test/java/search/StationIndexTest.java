@@ -0,0 +1,100 @@
+package search;
+
+import metro.Metro;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import utils.JsonUtil;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Индекс станций на result/metro.json: нормализация, префиксы имени и слов, опечатки, упоминания в подписях
+public class StationIndexTest {
+    private static final String JSON_FILE = "result/metro.json";
+
+    private static Metro metro;
+    private static StationIndex index;
+
+    @BeforeClass
+    public static void build() throws Exception {
+        metro = JsonUtil.loadJsonFile(JSON_FILE);
+        index = StationIndex.build(metro);
+    }
+
+    @Test
+    public void normalizeIgnoresCaseYoDashesAndQuotes() {
+        assertEquals("савеловская", StationIndex.normalize("Савёловская"));
+        assertEquals("бульвар дмитрия донского", StationIndex.normalize("  Бульвар  Дмитрия-Донского "));
+        assertEquals("парк победы", StationIndex.normalize("«Парк — Победы»"));
+    }
+
+    @Test
+    public void prefixFindsEveryLineOfStation() {
+        List<StationMatch> matches = index.prefix("киевск", 10);
+        assertEquals(metro.getStationsByName("Киевская").size(), matches.size());
+        for (StationMatch match : matches) {
+            assertEquals("Киевская", match.getStation().getName());
+            assertEquals(StationMatch.Kind.PREFIX, match.getKind());
+        }
+    }
+
+    @Test
+    public void exactMatchIgnoresYo() {
+        List<StationMatch> matches = index.prefix("Савеловская", 10);
+        assertFalse(matches.isEmpty());
+        assertEquals("Савёловская", matches.get(0).getStation().getName());
+        assertEquals(StationMatch.Kind.EXACT, matches.get(0).getKind());
+    }
+
+    @Test
+    public void prefixMatchesWordStartsAfterNameStarts() {
+        List<StationMatch> matches = index.prefix("парк", 100);
+        boolean wordStart = false;
+        for (StationMatch match : matches) {
+            boolean nameStart = StationIndex.normalize(match.getStation().getName()).startsWith("парк");
+            assertFalse("слово в середине имени раньше начала имени: " + match, wordStart && nameStart);
+            wordStart |= !nameStart;
+        }
+        assertTrue("нет совпадения по началу слова", wordStart);
+        assertTrue(contains(index.prefix("рокоссовского", 10), "Бульвар Рокоссовского"));
+    }
+
+    @Test
+    public void fuzzyFindsOneTypo() {
+        assertTrue(index.prefix("киевкая", 10).isEmpty());
+        List<StationMatch> matches = index.fuzzy("киевкая", 1, 10);
+        assertFalse(matches.isEmpty());
+        for (StationMatch match : matches) {
+            assertEquals("Киевская", match.getStation().getName());
+            assertEquals(StationMatch.Kind.FUZZY, match.getKind());
+            assertEquals(1, match.getDistance());
+        }
+        assertTrue(index.fuzzy("киевкая", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void searchFallsBackToTyposAndPutsExactFirst() {
+        List<StationMatch> matches = index.search("киевкая", 5);
+        assertFalse(matches.isEmpty());
+        assertEquals(StationMatch.Kind.FUZZY, matches.get(0).getKind());
+        assertEquals("Киевская", matches.get(0).getStation().getName());
+        assertEquals(StationMatch.Kind.EXACT, index.search("Киевская", 5).get(0).getKind());
+    }
+
+    @Test
+    public void mentionPrefersStationOfNamedLine() {
+        List<StationMatch> matches = index.mentionedIn("Переход на станцию Охотный ряд Сокольнической линии");
+        assertFalse(matches.isEmpty());
+        assertEquals("Охотный Ряд", matches.get(0).getStation().getName());
+        assertEquals("01", matches.get(0).getLine().getNumber());
+    }
+
+    //==================================================================================================================
+
+    private static boolean contains(List<StationMatch> matches, String name) {
+        return matches.stream().anyMatch(match -> match.getStation().getName().equals(name));
+    }
+}
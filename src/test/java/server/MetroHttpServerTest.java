@@ -0,0 +1,71 @@
+package server;
+
+import metro.LiveMetroNetwork;
+import metro.MetroNetwork;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+// Контексты сопоставляются только по точному пути или с разделителем "/", неизвестные линии и станции - 404
+public class MetroHttpServerTest {
+    private static MetroHttpServer server;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        MetroNetwork network = MetroNetwork.builder()
+                .addLine("1", "Первая").addStation("1", "Альфа").addStation("1", "Бета")
+                .build();
+        server = new MetroHttpServer(new LiveMetroNetwork(network));
+        server.start(0);
+    }
+
+    @AfterClass
+    public static void stop() {
+        server.stop();
+    }
+
+    @Test
+    public void knownPathsAnswer() throws Exception {
+        assertEquals(200, status("/lines"));
+        assertEquals(200, status("/lines/1/stations"));
+        assertEquals(200, status("/transfers?line=1&station=" + encode("Альфа")));
+        assertEquals(200, status("/route?from=" + encode("Альфа") + "&to=" + encode("Бета")));
+    }
+
+    @Test
+    public void prefixOfContextIsNotMatched() throws Exception {
+        assertEquals(404, status("/linesfoo"));
+        assertEquals(404, status("/routes"));
+        assertEquals(404, status("/metricsx"));
+        assertEquals(404, status("/lines/1/unknown"));
+    }
+
+    @Test
+    public void unknownLineOrStationIsNotFound() throws Exception {
+        assertEquals(404, status("/lines/99/stations"));
+        assertEquals(404, status("/transfers?station=" + encode("Гамма")));
+    }
+
+    //==================================================================================================================
+
+    private static int status(String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path)
+                .openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}